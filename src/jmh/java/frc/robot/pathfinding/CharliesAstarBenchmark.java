@@ -0,0 +1,111 @@
+package frc.robot.pathfinding;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the two halves of a CharliesAstar plan separately: assigning the costs from the goal,
+ * and walking them back into a path. Each invocation plans the next start and goal of the
+ * scenario, so the distribution covers short and long plans alike.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CharliesAstarBenchmark {
+  // How many different starts and goals each scenario plans between.
+  private static final int QUERIES = 16;
+
+  @Param({"EMPTY", "CLUTTERED", "MAZE", "MANY_ROBOTS"})
+  public Scenario scenario;
+
+  /* The flood is left out: beyond COST_CREATIVITY it only spreads toward the robot, so it finds
+   * no path for most plans through the clutter and the maze. Timing those would say nothing. */
+  @Param({"ASTAR"})
+  public CharliesAstar.Mode mode;
+
+  private GriddedField field;
+  private CharliesAstar astar;
+  private List<Translation2d> queries;
+  private int query = 0;
+
+  // The planners with the costs of every query already assigned, for measuring pathMaker alone.
+  private CharliesAstar[] assigned;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    field = scenarioField();
+    queries = scenario.queries(field, QUERIES);
+    astar = planner(field, 0);
+
+    assigned = new CharliesAstar[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      // The flood writes its costs into the field, so each planner needs a field of its own.
+      GriddedField own = scenarioField();
+      assigned[i] = planner(own, i);
+      own.grid().resetCosts();
+      assigned[i].firstCostAssign(own.coordsToBox(goal(i)));
+
+      // A mode which can not make the path would only time how fast it gives up.
+      List<Translation2d> path = assigned[i].pathMaker(start(i), goal(i));
+      if (path.isEmpty()
+          || own.coordsToCell(path.get(path.size() - 1)) != own.coordsToCell(goal(i))) {
+        throw new IllegalStateException(
+            mode + " found no path for query " + i + " of the " + scenario + " scenario");
+      }
+    }
+  }
+
+  /** Assigning the costs, the way findPath does, including clearing the last plan's costs. */
+  @Benchmark
+  public CharliesAstar firstCostAssign() {
+    int i = nextQuery();
+    astar.changeSetPoint(field.coordsToBox(start(i)));
+    if (mode == CharliesAstar.Mode.FLOOD) {
+      field.grid().resetCosts();
+    }
+    astar.firstCostAssign(field.coordsToBox(goal(i)));
+    return astar;
+  }
+
+  /** Walking already assigned costs into a path. */
+  @Benchmark
+  public List<Translation2d> pathMaker() {
+    int i = nextQuery();
+    return assigned[i].pathMaker(start(i), goal(i));
+  }
+
+  private GriddedField scenarioField() {
+    GriddedField scenarioField = new GriddedField();
+    scenarioField.addTempObstacles(scenario.movingObstacles());
+    return scenarioField;
+  }
+
+  private CharliesAstar planner(GriddedField plannerField, int i) {
+    CharliesAstar planner = new CharliesAstar(plannerField, plannerField.coordsToBox(start(i)));
+    planner.setMode(mode);
+    return planner;
+  }
+
+  private int nextQuery() {
+    query = (query + 1) % QUERIES;
+    return query;
+  }
+
+  private Translation2d start(int i) {
+    return queries.get(i * 2);
+  }
+
+  private Translation2d goal(int i) {
+    return queries.get(i * 2 + 1);
+  }
+}
@@ -0,0 +1,60 @@
+package frc.robot.pathfinding;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures building the field and putting the moving obstacles on it, which happens once at boot
+ * and once every period respectively.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GriddedFieldBenchmark {
+  @Param({"EMPTY", "CLUTTERED", "MAZE", "MANY_ROBOTS"})
+  public Scenario scenario;
+
+  private GriddedField field;
+  private FieldGrid scratchGrid;
+  private List<Obstacle> obstacles;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    field = new GriddedField();
+    obstacles = scenario.movingObstacles();
+    scratchGrid = new FieldGrid(field.grid().width(), field.grid().height());
+  }
+
+  /** The whole field from its walls and stationary obstacles, including the clearance map. */
+  @Benchmark
+  public GriddedField construct() {
+    return new GriddedField();
+  }
+
+  /**
+   * One period's refresh of the moving obstacles: clearing the old ones, rasterizing the new ones
+   * and updating the blocked cells around both.
+   */
+  @Benchmark
+  public GriddedField addTempObstacles() {
+    field.addTempObstacles(obstacles);
+    return field;
+  }
+
+  /** Only rasterizing the obstacles into the temporary layer, without the clearance update. */
+  @Benchmark
+  public FieldGrid addObstacles() {
+    scratchGrid.clearTemporary();
+    GriddedField.addObstacles(obstacles, scratchGrid);
+    return scratchGrid;
+  }
+}
@@ -0,0 +1,53 @@
+package frc.robot.pathfinding;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the line of sight check the path follower makes every period, between pairs of points
+ * spread across the field, some of which can see each other and some of which can not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PathBenchmark {
+  private static final int QUERIES = 64;
+
+  @Param({"EMPTY", "CLUTTERED", "MAZE", "MANY_ROBOTS"})
+  public Scenario scenario;
+
+  private Path path;
+  private Pose2d[] poses;
+  private int query = 0;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    GriddedField field = new GriddedField();
+    field.addTempObstacles(scenario.movingObstacles());
+    List<Translation2d> points = scenario.queries(field, QUERIES);
+    poses = new Pose2d[points.size()];
+    for (int i = 0; i < poses.length; i++) {
+      poses[i] = new Pose2d(points.get(i), new Rotation2d());
+    }
+    // Only the line of sight is measured, which never touches the drive.
+    path = new Path(poses[0], poses[1], field, null);
+  }
+
+  @Benchmark
+  public boolean pointSeeable() {
+    query = (query + 2) % poses.length;
+    return path.pointSeeable(poses[query], poses[query + 1]);
+  }
+}
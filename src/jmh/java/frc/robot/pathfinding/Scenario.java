@@ -0,0 +1,165 @@
+package frc.robot.pathfinding;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.Constants.Field;
+import frc.robot.pathfinding.Convenience.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The fields the benchmarks run on. Every scenario is the real field with a different set of moving
+ * obstacles on it, generated from a fixed seed so every run measures the same field.
+ */
+public enum Scenario {
+  /** No moving obstacles at all. */
+  EMPTY,
+  /** A few dozen boxes of different sizes scattered around. */
+  CLUTTERED,
+  /** Walls across the field with a gap at alternating ends, so paths have to zigzag. */
+  MAZE,
+  /** The five other robots, and game pieces, spread across the field. */
+  MANY_ROBOTS;
+
+  // Where the moving obstacles can go, keeping clear of the walls.
+  private static final double MARGIN = 150;
+
+  private static final long SEED = 5190;
+
+  /**
+   * @return The moving obstacles of the scenario.
+   */
+  public List<Obstacle> movingObstacles() {
+    Random random = new Random(SEED + ordinal());
+    List<Obstacle> obstacles = new ArrayList<>();
+    switch (this) {
+      case EMPTY:
+        break;
+      case CLUTTERED:
+        for (int i = 0; i < 30; i++) {
+          obstacles.add(
+              Obstacle.rectangularObstacle(
+                  randomPose(random), 20 + random.nextInt(60), 20 + random.nextInt(60)));
+        }
+        break;
+      case MAZE:
+        // Each wall leaves a gap wide enough for the robot at one end, the other end each time.
+        double gap = 220;
+        for (int i = 0; i < 5; i++) {
+          double x = 300 + i * 260;
+          double length = Field.FIELD_WIDTH - gap;
+          double centerY = i % 2 == 0 ? length / 2 : Field.FIELD_WIDTH - length / 2;
+          obstacles.add(Obstacle.rectangularObstacle(new Translation2d(x, centerY), length, 10));
+        }
+        break;
+      case MANY_ROBOTS:
+        for (int i = 0; i < 5; i++) {
+          obstacles.add(Obstacle.rectangularObstacle(randomPose(random), 90, 90));
+        }
+        for (int i = 0; i < 20; i++) {
+          obstacles.add(Obstacle.circularObstacle(randomPose(random).getTranslation(), 18));
+        }
+        break;
+    }
+    return obstacles;
+  }
+
+  /**
+   * Picks starts and goals for the plans. They are all in the largest area the robot can drive
+   * around in once the scenario's obstacles are on the field, so every pair has a path. The first
+   * pair always crosses the whole field.
+   *
+   * @param field The field, with the scenario's obstacles already on it.
+   * @param count How many pairs to pick.
+   * @return The pairs, the start of each pair followed by its goal.
+   */
+  public List<Translation2d> queries(GriddedField field, int count) {
+    Random random = new Random(SEED * 31 + ordinal());
+    boolean[] region = largestRegion(field);
+    List<Translation2d> points = new ArrayList<>();
+    points.add(freeNear(field, region, new Translation2d(MARGIN, MARGIN)));
+    points.add(
+        freeNear(
+            field,
+            region,
+            new Translation2d(Field.FIELD_LENGTH - MARGIN, Field.FIELD_WIDTH - MARGIN)));
+    while (points.size() < count * 2) {
+      Translation2d point = randomPose(random).getTranslation();
+      if (region[field.coordsToCell(point)]) {
+        points.add(point);
+      }
+    }
+    return points;
+  }
+
+  // The center of the cell in the region closest to the point.
+  private static Translation2d freeNear(GriddedField field, boolean[] region, Translation2d point) {
+    Translation2d closest = null;
+    double closestDistance = Double.POSITIVE_INFINITY;
+    for (int cell = 0; cell < region.length; cell++) {
+      if (!region[cell]) {
+        continue;
+      }
+      Translation2d candidate = field.cellToTranslation(cell);
+      double distance = candidate.getDistance(point);
+      if (distance < closestDistance) {
+        closest = candidate;
+        closestDistance = distance;
+      }
+    }
+    return closest;
+  }
+
+  /* The cells of the largest area the robot can drive around in. Obstacles grown by the clearance
+   * radius can close off pockets of the field, and a plan into one of them has no path. */
+  private static boolean[] largestRegion(GriddedField field) {
+    FieldGrid grid = field.grid();
+    int[] region = new int[grid.cellCount()];
+    int[] size = new int[grid.cellCount() + 1];
+    CellQueue queue = new CellQueue(grid.cellCount());
+    int regions = 0;
+    int largest = 0;
+    for (int seed = 0; seed < grid.cellCount(); seed++) {
+      if (region[seed] != 0 || field.isBlocked(seed)) {
+        continue;
+      }
+      regions++;
+      region[seed] = regions;
+      queue.offer(seed);
+      while (!queue.isEmpty()) {
+        int cell = queue.poll();
+        size[regions]++;
+        int x = grid.x(cell);
+        int y = grid.y(cell);
+        for (Point step : CharliesAstar.intpair) {
+          if (!field.canMove(x, y, step.getX(), step.getY())) {
+            continue;
+          }
+          int neighbour = grid.id(x + step.getX(), y + step.getY());
+          if (region[neighbour] == 0) {
+            region[neighbour] = regions;
+            queue.offer(neighbour);
+          }
+        }
+      }
+      if (size[regions] > size[largest]) {
+        largest = regions;
+      }
+    }
+
+    boolean[] inLargest = new boolean[grid.cellCount()];
+    for (int cell = 0; cell < grid.cellCount(); cell++) {
+      inLargest[cell] = region[cell] == largest;
+    }
+    return inLargest;
+  }
+
+  private static Pose2d randomPose(Random random) {
+    return new Pose2d(
+        MARGIN + random.nextDouble() * (Field.FIELD_LENGTH - 2 * MARGIN),
+        MARGIN + random.nextDouble() * (Field.FIELD_WIDTH - 2 * MARGIN),
+        Rotation2d.fromDegrees(random.nextInt(180)));
+  }
+}
@@ -4,8 +4,10 @@
 
 package frc.robot;
 
+import edu.wpi.first.math.geometry.Pose2d;
 import frc.robot.pathfinding.Obstacle;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide numerical or boolean
@@ -34,5 +36,9 @@ public final class Constants {
 
     // The stationary obstacles are predetermined. So, they would be inputted here.
     public static final List<Obstacle> stationaryObstacles = List.of();
+
+    /* The places the robot drives to over and over, like the scoring, pickup and stage poses, by
+     * name and in cm. A goal distance field is generated for each of them before deploying. */
+    public static final Map<String, Pose2d> goalPoses = Map.of();
   }
 }
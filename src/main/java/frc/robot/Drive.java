@@ -2,10 +2,16 @@ package frc.robot;
 
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.Field;
 import frc.robot.commands.PathFollowing;
+import frc.robot.pathfinding.FieldMap;
+import frc.robot.pathfinding.GoalDistanceField;
 import frc.robot.pathfinding.GriddedField;
 import frc.robot.pathfinding.Path;
+import java.io.File;
+import java.util.List;
 
 public class Drive {
   Pose2d hyptheticalPose = new Pose2d();
@@ -14,6 +20,9 @@ public class Drive {
   GriddedField field;
   PathFollowing follower;
 
+  // The goal distance fields of Field.goalPoses, taken from the deployed map where it has them.
+  List<GoalDistanceField> goalFields = List.of();
+
   public PIDController pid =
       new PIDController(DriveConstants.kP, DriveConstants.kI, DriveConstants.kD);
 
@@ -22,7 +31,28 @@ public class Drive {
    * placeholder methods.
    */
   public Drive() {
-    field = new GriddedField();
+    this(FieldMap.tryOpen(new File(Filesystem.getDeployDirectory(), FieldMap.FILE_NAME)));
+  }
+
+  private Drive(FieldMap map) {
+    this(new GriddedField(map));
+    goalFields = GoalDistanceField.loadAll(map, field, Field.goalPoses);
+  }
+
+  /**
+   * Constructor for drives which are not the robot's, like a simulated one.
+   *
+   * @param field The field the robot drives on.
+   */
+  protected Drive(GriddedField field) {
+    this.field = field;
+  }
+
+  /**
+   * @return The goal distance fields of the goals the robot drives to often.
+   */
+  public List<GoalDistanceField> getGoalFields() {
+    return goalFields;
   }
 
   public Command goToState(Pose2d position, double speed) {
@@ -4,10 +4,17 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Drive;
-import frc.robot.pathfinding.CharliesAstar;
+import frc.robot.pathfinding.DStarLite;
+import frc.robot.pathfinding.GoalFieldPlanner;
+import frc.robot.pathfinding.GoalRanker;
 import frc.robot.pathfinding.GriddedField;
 import frc.robot.pathfinding.Obstacle;
 import frc.robot.pathfinding.Path;
+import frc.robot.pathfinding.PathPlanner;
+import frc.robot.pathfinding.PathSmoother;
+import frc.robot.pathfinding.PathfindingConstants;
+import frc.robot.pathfinding.PlannerService;
+import frc.robot.pathfinding.PlannerTelemetry;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -22,15 +29,69 @@ public class PathFollowing {
   private Path path;
   private Drive drive;
   private GriddedField field;
-  private CharliesAstar aStar;
 
+  // Calculates the whole path. Keeps its search between calls so replans only repair the changes.
+  private PathPlanner planner;
+
+  // Calculates the path on its own thread instead, if there is one. Then the field belongs to it.
+  private PlannerService service;
+
+  // The moving obstacles to put on the field with the next plan, or send with the next request to
+  // the service.
+  private List<Obstacle> movingObstacles = List.of();
+
+  // The result of the service the waypoints came from.
+  private PlannerService.Result adoptedResult;
+
+  // The waypoints of the latest path, and which one the robot is driving to.
+  private List<Translation2d> waypoints = List.of();
+  private int waypointIndex = 0;
+
+  // How long the latest path took to plan, in nanoseconds.
+  private long planningNanos = 0;
+
+  // Where the cost of each plan is published, or null.
+  private PlannerTelemetry telemetry;
+
+  // Costs candidate goals against each other. Made the first time there is a choice of goals.
+  private GoalRanker ranker;
+
+  /**
+   * Constructor. Follows the drive's goal distance fields to the goals which have one, and plans
+   * with D* Lite to every other goal.
+   *
+   * @param drive The drivetrain.
+   * @param field The field to plan on.
+   */
   public PathFollowing(Drive drive, GriddedField field) {
+    this(
+        drive,
+        field,
+        new PathSmoother(
+            field, new GoalFieldPlanner(field, drive.getGoalFields(), new DStarLite(field))));
+  }
+
+  public PathFollowing(Drive drive, GriddedField field, PathPlanner planner) {
+    this.drive = drive;
+    this.field = field;
+    this.planner = planner;
+
+    newPath(drive.getPose());
+  }
+
+  /**
+   * Constructor for planning on a background thread. The robot loop only sends requests to the
+   * service and reads its latest plan, so a slow plan never holds the loop up. Starts the service.
+   *
+   * @param drive The drivetrain.
+   * @param field The field the service plans on.
+   * @param service The service, which owns the field from now on.
+   */
+  public PathFollowing(Drive drive, GriddedField field, PlannerService service) {
     this.drive = drive;
     this.field = field;
-    aStar =
-        new CharliesAstar(
-            field,
-            field.coordsToBox(new Translation2d(path.endingPoint.getX(), path.endingPoint.getY())));
+    this.service = service;
+    service.start();
 
     newPath(drive.getPose());
   }
@@ -53,6 +114,40 @@ public class PathFollowing {
    */
   public void newPath(Pose2d goal) {
     path = new Path(drive.getPose(), goal, field, drive);
+    waypoints = List.of();
+    waypointIndex = 0;
+    adoptedResult = null;
+    // The old waypoints lead somewhere else, so the next period plans right away.
+    refreshMeter = REFRESH_INTERVAL;
+  }
+
+  /**
+   * Sets the current path to go to whichever of several goals is cheapest to drive to right now,
+   * counting the moving obstacles. All the goals are costed by one search, so choosing takes about
+   * as long as one plan.
+   *
+   * @param goals The goals any one of which will do.
+   * @return Every goal with its cost, cheapest first. The path goes to the first one.
+   * @throws IllegalArgumentException If there are no goals.
+   * @throws IllegalStateException If planning on a planner service, since the field belongs to its
+   *     thread.
+   */
+  public List<GoalRanker.RankedGoal> newPath(List<Pose2d> goals) {
+    if (goals.isEmpty()) {
+      throw new IllegalArgumentException("There has to be at least one goal to choose from");
+    }
+    if (service != null) {
+      throw new IllegalStateException(
+          "Goals can not be ranked while the field belongs to a planner service");
+    }
+    if (ranker == null) {
+      ranker = new GoalRanker(field);
+    }
+    field.addTempObstacles(movingObstacles);
+    List<GoalRanker.RankedGoal> ranked =
+        ranker.rank(field.freePointNear(drive.getPose().getTranslation()), goals);
+    newPath(ranked.get(0).goal());
+    return ranked;
   }
 
   /**
@@ -63,26 +158,117 @@ public class PathFollowing {
    * @return A command to send the robot to the next position in its heroic journey.
    */
   public Command goToNextPose(double speed) {
-    field.addTempObstacles(field.getMovingObstacles());
     if (refreshMeter >= REFRESH_INTERVAL) {
-      aStar.assignCosts(field.coordsToBox(path.endingPoint.getTranslation()));
+      calculatePath();
       refreshMeter = 0;
     } else {
       refreshMeter++;
     }
-    return drive.goToState(
-        new Pose2d(aStar.nextPos(drive.getPose().getTranslation()), path.endingPoint.getRotation()),
-        speed);
+    return drive.goToState(new Pose2d(nextWaypoint(), path.endingPoint.getRotation()), speed);
   }
 
   /**
-   * Calculates a path from the starting point to the ending point which avoids all obstacles.
+   * Calculates a path from the starting point to the ending point which avoids all obstacles. The
+   * robot follows it from then on. With a planner service, this only asks the service for the path,
+   * and the robot starts following it once the service is done.
    *
-   * @return A list of Translation2ds which represent the coordinate path of the robot.
+   * @return A list of Translation2ds which represent the coordinate path of the robot. With a
+   *     planner service, the path the robot is following until the new one is done.
    */
   public List<Translation2d> calculatePath() {
-    field.addTempObstacles(field.getMovingObstacles());
-    return aStar.pathMaker(drive.getPose().getTranslation(), path.endingPoint.getTranslation());
+    if (service != null) {
+      // The new path is picked up from the service once it is done.
+      service.submit(
+          drive.getPose().getTranslation(), path.endingPoint.getTranslation(), movingObstacles);
+      return waypoints;
+    }
+
+    long allocatedBefore = telemetry == null ? -1 : PlannerTelemetry.allocatedBytes();
+    long startTime = System.nanoTime();
+    field.addTempObstacles(movingObstacles);
+    long searchStart = System.nanoTime();
+    waypoints =
+        planner.findPathFromFreePoint(
+            field, drive.getPose().getTranslation(), path.endingPoint.getTranslation());
+    long endTime = System.nanoTime();
+    planningNanos = endTime - startTime;
+    if (telemetry != null) {
+      telemetry.record(
+          planner,
+          field,
+          searchStart - startTime,
+          endTime - searchStart,
+          waypoints,
+          PlannerTelemetry.allocatedSince(allocatedBefore));
+    }
+    // The first point is where the robot already is.
+    waypointIndex = Math.min(1, Math.max(0, waypoints.size() - 1));
+    return waypoints;
+  }
+
+  /**
+   * Finds the waypoint the robot should be driving to. Waypoints the robot has reached are passed
+   * over.
+   *
+   * @return The position of the waypoint, or the position of the robot if there is no path.
+   */
+  public Translation2d nextWaypoint() {
+    if (service != null) {
+      adoptLatestResult();
+    }
+    Translation2d position = drive.getPose().getTranslation();
+    if (waypoints.isEmpty()) {
+      return position;
+    }
+    while (waypointIndex < waypoints.size() - 1
+        && position.getDistance(waypoints.get(waypointIndex))
+            < PathfindingConstants.WAYPOINT_TOLERANCE) {
+      waypointIndex++;
+    }
+    return waypoints.get(waypointIndex);
+  }
+
+  /**
+   * Follows the latest plan of the service, if it is new and was planned for the current goal.
+   * Never waits for a plan.
+   */
+  private void adoptLatestResult() {
+    PlannerService.Result result = service.latestResult();
+    if (result == null
+        || result == adoptedResult
+        || !result.request().goal().equals(path.endingPoint.getTranslation())) {
+      return;
+    }
+    adoptedResult = result;
+    waypoints = result.path();
+    planningNanos = result.planningNanos();
+    // The first point is where the robot was when the plan started.
+    waypointIndex = Math.min(1, Math.max(0, waypoints.size() - 1));
+  }
+
+  /**
+   * Publishes the cost of every plan from now on. With a planner service, give the telemetry to
+   * the service instead, since the plans are made on its thread.
+   *
+   * @param telemetry Where to publish, or null to stop.
+   */
+  public void setTelemetry(PlannerTelemetry telemetry) {
+    this.telemetry = telemetry;
+  }
+
+  /**
+   * @return The waypoints of the path the robot is following.
+   */
+  public List<Translation2d> getWaypoints() {
+    return waypoints;
+  }
+
+  /**
+   * @return How long the path the robot is following took to plan, in nanoseconds. With a planner
+   *     service, the time it took on the service's thread.
+   */
+  public long getPlanningNanos() {
+    return planningNanos;
   }
 
   /**
@@ -99,7 +285,9 @@ public class PathFollowing {
   }
 
   public Command pathFollow(Supplier<List<Obstacle>> movingObstacles, Pose2d nextDestination) {
-    path.updateObstacles(movingObstacles);
+    /* The obstacles are only put on the field when the next path is planned, by the service if
+     * there is one. Drawing them every period would redo the clearances for nothing in between. */
+    this.movingObstacles = movingObstacles.get();
     pathEndCheck(nextDestination);
     return goToNextPose();
   }
@@ -0,0 +1,382 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.pathfinding.Convenience.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An anytime planner using ARA* (Likhachev, Gordon and Thrun), which never takes longer than its
+ * time budget. The first search inflates the heuristic by a factor, epsilon, so it heads greedily
+ * for the robot and finds a path quickly, which is at most epsilon times longer than the shortest
+ * one. Each following search lowers epsilon and reuses the costs already found, until epsilon is 1
+ * and the path is the shortest.
+ *
+ * <p>When the budget runs out the best path found so far is returned, and the next call picks the
+ * search up where it stopped. The search runs from the goal, so every cell it has reached knows a
+ * path to the goal, and the robot moving along only starts a new round of the search instead of
+ * starting over. A change in the blocked cells is repaired the way D* Lite repairs it: only the
+ * cells whose way to the goal went through a changed cell lose their cost, the cells around them
+ * are opened again, and the search goes on with the same epsilon. A new goal starts over.
+ */
+public class AnytimeAstar implements PathPlanner {
+  // How many cells are expanded between looks at the clock.
+  private static final int CLOCK_INTERVAL = 16;
+
+  private final GriddedField field;
+  private final FieldGrid grid;
+  private final ChangedCells changes;
+
+  // The cost from each cell to the goal, and the neighbour it is reached through. A cell's parent
+  // always has a lower cost than it, so following the parents always ends at the goal.
+  private final float[] g;
+  private final int[] parent;
+
+  // The round of the search each cell was last expanded in. Cells are closed in the current round.
+  private final int[] closedIn;
+  private final IndexedMinHeap open;
+
+  // Cells whose cost dropped after they were expanded this round. They are opened again next round.
+  private final int[] inconsistent;
+  private final boolean[] isInconsistent;
+  private int inconsistentCount = 0;
+
+  // Holds the open cells while their keys are worked out again, and the cells which lose their cost
+  // while a change is repaired.
+  private final int[] reopened;
+
+  private int goal = -1;
+  private int target = -1;
+  private int targetX;
+  private int targetY;
+  private float epsilon;
+  private int round = 0;
+
+  // How far from the shortest the current path can be, as a factor. Infinite if there is none yet.
+  private float bound = Float.POSITIVE_INFINITY;
+
+  private long budgetMicros = ANYTIME_BUDGET_MICROS;
+  private int expansions = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param field The field on which the algorithm is working on.
+   */
+  public AnytimeAstar(GriddedField field) {
+    this.field = field;
+    grid = field.grid();
+    int cellCount = grid.cellCount();
+    g = new float[cellCount];
+    parent = new int[cellCount];
+    closedIn = new int[cellCount];
+    open = new IndexedMinHeap(cellCount);
+    inconsistent = new int[cellCount];
+    isInconsistent = new boolean[cellCount];
+    reopened = new int[cellCount];
+    changes = field.trackChanges(MAX_REPAIRED_CELLS);
+  }
+
+  /**
+   * Finds a path within the time budget set by {@link #setBudget(long)}.
+   *
+   * @param startPos The position of the robot.
+   * @param goalPos The goal of the robot.
+   * @return The best path found so far, or an empty list if none has been found yet.
+   */
+  @Override
+  public List<Translation2d> findPath(Translation2d startPos, Translation2d goalPos) {
+    return findPath(startPos, goalPos, budgetMicros);
+  }
+
+  /**
+   * Finds a path, taking no longer than a time budget. Calling this again with the same goal keeps
+   * improving the path.
+   *
+   * @param startPos The position of the robot.
+   * @param goalPos The goal of the robot.
+   * @param budget The longest the search can take, in microseconds.
+   * @return The best path found so far, or an empty list if none has been found yet.
+   */
+  public List<Translation2d> findPath(Translation2d startPos, Translation2d goalPos, long budget) {
+    long deadline = System.nanoTime() + budget * 1000;
+    expansions = 0;
+
+    int start = field.coordsToCell(startPos);
+    int newGoal = field.coordsToCell(goalPos);
+    if (field.isBlocked(startPos) || field.isBlocked(goalPos)) {
+      // Nothing from this search can be reused for the next goal.
+      goal = -1;
+      changes.clear();
+      return new ArrayList<>();
+    }
+
+    if (newGoal != goal || changes.overflowed()) {
+      restart(newGoal, start);
+    } else if (changes.size() > 0) {
+      repair();
+      nextRound(start, epsilon);
+    } else if (start != target) {
+      // The costs to the goal are still right, only the cell the search heads for has moved.
+      nextRound(start, epsilon);
+    }
+    changes.clear();
+
+    while (improvePath(deadline)) {
+      if (g[target] == SearchState.UNREACHED) {
+        // Every cell which can reach the goal has been expanded, and the robot is not one of them.
+        break;
+      }
+      bound = epsilon;
+      if (epsilon <= 1 || System.nanoTime() >= deadline) {
+        // The next call starts the next round.
+        break;
+      }
+      nextRound(target, (float) Math.max(1, epsilon - ANYTIME_EPSILON_STEP));
+    }
+    return buildPath(startPos, start);
+  }
+
+  /**
+   * Runs the current round of the search until the robot's cell is known to be within epsilon of
+   * its shortest path, or the deadline passes.
+   *
+   * @param deadline The System.nanoTime() at which to stop.
+   * @return True if the round finished, false if it ran out of time.
+   */
+  private boolean improvePath(long deadline) {
+    while (!open.isEmpty() && open.peekKey() < g[target]) {
+      if (expansions % CLOCK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+        return false;
+      }
+      int current = open.pop();
+      closedIn[current] = round;
+      expansions++;
+
+      int x = grid.x(current);
+      int y = grid.y(current);
+      for (int d = 0; d < CharliesAstar.intpair.length; d++) {
+        Point p = CharliesAstar.intpair[d];
+        if (!field.canMove(x, y, p.getX(), p.getY())) {
+          continue;
+        }
+        int neighbour = grid.id(x + p.getX(), y + p.getY());
+        // The odd directions are the diagonals.
+        float proposed = g[current] + (d % 2 == 0 ? 1 : (float) DIAGONAL_COST);
+        if (proposed >= g[neighbour]) {
+          continue;
+        }
+        g[neighbour] = proposed;
+        parent[neighbour] = current;
+        if (closedIn[neighbour] == round) {
+          if (!isInconsistent[neighbour]) {
+            isInconsistent[neighbour] = true;
+            inconsistent[inconsistentCount++] = neighbour;
+          }
+        } else {
+          float heuristic = heuristic(neighbour);
+          open.push(neighbour, proposed + epsilon * heuristic, heuristic);
+        }
+      }
+    }
+    return true;
+  }
+
+  // Forgets everything and starts the first round toward a new goal.
+  private void restart(int newGoal, int start) {
+    Arrays.fill(g, SearchState.UNREACHED);
+    Arrays.fill(parent, -1);
+    open.clear();
+    clearInconsistent();
+    bound = Float.POSITIVE_INFINITY;
+
+    goal = newGoal;
+    setTarget(start);
+    epsilon = (float) ANYTIME_INITIAL_EPSILON;
+    round++;
+    g[goal] = 0;
+    open.push(goal, epsilon * heuristic(goal), heuristic(goal));
+  }
+
+  /**
+   * Takes the costs away from every cell whose way to the goal is no longer allowed, and opens the
+   * cells which could give them a new one. Costs which are still right are kept, so the search only
+   * has to fill in around the changed cells.
+   */
+  private void repair() {
+    // The cells which lose their cost, in the order they lose it. A cell's children are found by
+    // looking at its neighbours, as their parent is next to them.
+    int lost = 0;
+    for (int i = 0; i < changes.size(); i++) {
+      int cell = changes.get(i);
+      lost = invalidateBroken(cell, lost);
+      int x = grid.x(cell);
+      int y = grid.y(cell);
+      for (Point p : CharliesAstar.intpair) {
+        if (grid.inBounds(x + p.getX(), y + p.getY())) {
+          lost = invalidateBroken(grid.id(x + p.getX(), y + p.getY()), lost);
+        }
+      }
+    }
+    for (int head = 0; head < lost; head++) {
+      int x = grid.x(reopened[head]);
+      int y = grid.y(reopened[head]);
+      for (Point p : CharliesAstar.intpair) {
+        if (grid.inBounds(x + p.getX(), y + p.getY())) {
+          int child = grid.id(x + p.getX(), y + p.getY());
+          if (parent[child] == reopened[head]) {
+            lost = invalidate(child, lost);
+          }
+        }
+      }
+    }
+    if (lost > 0) {
+      // The last path may have gone through a changed cell, so nothing is known about it.
+      bound = Float.POSITIVE_INFINITY;
+    }
+
+    // Whatever is next to a cell which lost its cost, or to a cell which was freed, can reach it.
+    for (int i = 0; i < lost; i++) {
+      openNeighbours(reopened[i]);
+    }
+    for (int i = 0; i < changes.size(); i++) {
+      openNeighbours(changes.get(i));
+    }
+  }
+
+  // Takes the cost away from a cell if the step to its parent is no longer allowed.
+  private int invalidateBroken(int cell, int lost) {
+    if (cell == goal || g[cell] == SearchState.UNREACHED) {
+      return lost;
+    }
+    int from = parent[cell];
+    int fromX = grid.x(from);
+    int fromY = grid.y(from);
+    if (field.isBlocked(cell)
+        || !field.canMove(fromX, fromY, grid.x(cell) - fromX, grid.y(cell) - fromY)) {
+      return invalidate(cell, lost);
+    }
+    return lost;
+  }
+
+  private int invalidate(int cell, int lost) {
+    g[cell] = SearchState.UNREACHED;
+    parent[cell] = -1;
+    open.remove(cell);
+    reopened[lost] = cell;
+    return lost + 1;
+  }
+
+  private void openNeighbours(int cell) {
+    int x = grid.x(cell);
+    int y = grid.y(cell);
+    for (Point p : CharliesAstar.intpair) {
+      if (!grid.inBounds(x + p.getX(), y + p.getY())) {
+        continue;
+      }
+      int neighbour = grid.id(x + p.getX(), y + p.getY());
+      if (g[neighbour] != SearchState.UNREACHED) {
+        // The key is worked out again when the next round starts.
+        open.push(neighbour, g[neighbour], 0);
+      }
+    }
+  }
+
+  /**
+   * Starts a new round of the search. Every cell is open to being expanded again, and the open
+   * cells are sorted again for the new target and epsilon. The costs found so far are kept.
+   */
+  private void nextRound(int newTarget, float newEpsilon) {
+    setTarget(newTarget);
+    epsilon = newEpsilon;
+    round++;
+
+    int count = open.drainTo(reopened);
+    for (int i = 0; i < inconsistentCount; i++) {
+      reopened[count++] = inconsistent[i];
+    }
+    clearInconsistent();
+    for (int i = 0; i < count; i++) {
+      int cell = reopened[i];
+      if (g[cell] == SearchState.UNREACHED) {
+        // Lost its cost to a repair after it became inconsistent.
+        continue;
+      }
+      float heuristic = heuristic(cell);
+      open.push(cell, g[cell] + epsilon * heuristic, heuristic);
+    }
+  }
+
+  private void setTarget(int cell) {
+    target = cell;
+    targetX = grid.x(cell);
+    targetY = grid.y(cell);
+  }
+
+  private void clearInconsistent() {
+    for (int i = 0; i < inconsistentCount; i++) {
+      isInconsistent[inconsistent[i]] = false;
+    }
+    inconsistentCount = 0;
+  }
+
+  private float heuristic(int cell) {
+    return CharliesAstar.octileDistance(grid.x(cell) - targetX, grid.y(cell) - targetY);
+  }
+
+  /**
+   * Follows the parents from the robot to the goal.
+   *
+   * @param startPos The position of the robot.
+   * @param start The cell of the robot.
+   * @return The points of the path from startPos to the goal, or an empty list if the robot's cell
+   *     has not been reached.
+   */
+  private List<Translation2d> buildPath(Translation2d startPos, int start) {
+    List<Translation2d> points = new ArrayList<>();
+    if (g[start] == SearchState.UNREACHED) {
+      return points;
+    }
+    points.add(startPos);
+    for (int cell = parent[start]; cell >= 0; cell = parent[cell]) {
+      points.add(field.cellToTranslation(cell));
+    }
+    return points;
+  }
+
+  /**
+   * @return How far from the shortest the last path can be, as a factor. 1 if it is the shortest,
+   *     infinite if no path has been found for the current goal.
+   */
+  public float getBound() {
+    return bound;
+  }
+
+  /**
+   * @return The number of cells expanded by the last call.
+   */
+  @Override
+  public int getExpansions() {
+    return expansions;
+  }
+
+  /**
+   * @return The longest a call to {@link #findPath(Translation2d, Translation2d)} can take, in
+   *     microseconds.
+   */
+  public long getBudget() {
+    return budgetMicros;
+  }
+
+  /**
+   * Changes how long a call to {@link #findPath(Translation2d, Translation2d)} can take.
+   *
+   * @param micros The new budget, in microseconds.
+   */
+  public void setBudget(long micros) {
+    budgetMicros = micros;
+  }
+}
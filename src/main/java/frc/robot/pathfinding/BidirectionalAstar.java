@@ -0,0 +1,314 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.pathfinding.Convenience.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * An A* planner which searches from the robot and from the goal at the same time, until the two
+ * searches meet in the middle. A search from one end of the field to the other covers most of the
+ * grid, while two searches which each go halfway cover about half as much.
+ *
+ * <p>Whenever a cell is reached by both searches, the path through it is a candidate. The planner
+ * stops once the lowest f value left on either search's heap is no less than the best candidate:
+ * any shorter path would have to pass through a cell on that heap first, and every cell there
+ * already costs at least as much. So the path is as short as a plain A*'s. If either search runs
+ * out of expansions first, the best path found by then is used, which may be longer.
+ *
+ * <p>The two searches can run on two threads, the calling one and a worker owned by the planner.
+ * They only share which cells each has reached, which is kept in an atomic array so a meeting is
+ * never missed, and the best candidate.
+ */
+public class BidirectionalAstar implements PathPlanner, AutoCloseable {
+  /** One of the two searches. */
+  private final class Frontier implements Runnable {
+    private final SearchState search;
+    // The bit of the meetings array this search sets.
+    private final int bit;
+    private Frontier other;
+
+    // The cell the search heads toward.
+    private int target;
+
+    private int expansions = 0;
+    private int relaxations = 0;
+
+    Frontier(int cellCount, int bit) {
+      search = new SearchState(cellCount);
+      this.bit = bit;
+    }
+
+    void begin(int root, int target) {
+      search.reset();
+      expansions = 0;
+      relaxations = 0;
+      this.target = target;
+      search.reach(root, 0, -1);
+      search.open().push(root, heuristic(root), heuristic(root));
+      meet(this, root);
+    }
+
+    /**
+     * Expands the cell with the lowest f value.
+     *
+     * @return False, and ends the plan, if this search has nothing left to do.
+     */
+    boolean expand() {
+      IndexedMinHeap open = search.open();
+      if (open.isEmpty() || open.peekKey() >= bestCost || expansions >= MAX_EXPANSIONS / 2) {
+        finished = true;
+        return false;
+      }
+
+      int current = open.pop();
+      search.close(current);
+      // The other search has the shortest way from here to its end already, and the path through
+      // here was offered when this search reached it.
+      if (other.search.isClosed(current)) {
+        return true;
+      }
+      expansions++;
+
+      int x = grid.x(current);
+      int y = grid.y(current);
+      for (int d = 0; d < CharliesAstar.intpair.length; d++) {
+        Point p = CharliesAstar.intpair[d];
+        // Moves are allowed the same both ways, so the search from the goal can use them as is.
+        if (!field.canMove(x, y, p.getX(), p.getY())) {
+          continue;
+        }
+        int neighbour = grid.id(x + p.getX(), y + p.getY());
+        if (search.isClosed(neighbour)) {
+          continue;
+        }
+        // The odd directions are the diagonals.
+        float proposed = search.g(current) + (d % 2 == 0 ? 1 : (float) DIAGONAL_COST);
+        float heuristic = heuristic(neighbour);
+        // A path through the neighbour could not beat the best one found already.
+        if (proposed + heuristic >= bestCost) {
+          continue;
+        }
+        if (proposed < search.g(neighbour)) {
+          search.reach(neighbour, proposed, current);
+          relaxations++;
+          open.push(neighbour, proposed + heuristic, heuristic);
+          meet(this, neighbour);
+        }
+      }
+      return true;
+    }
+
+    // Expands cells until the plan ends, when the searches run on two threads.
+    @Override
+    public void run() {
+      while (!finished && expand()) {}
+    }
+
+    private float heuristic(int cell) {
+      return CharliesAstar.octileDistance(
+          grid.x(target) - grid.x(cell), grid.y(target) - grid.y(cell));
+    }
+  }
+
+  private final GriddedField field;
+  private final FieldGrid grid;
+
+  private final Frontier forward;
+  private final Frontier backward;
+
+  /* Which searches have reached each cell this plan. The low two bits are the frontiers' bits, and
+   * the rest is the plan's generation, so a new plan does not have to clear the array. */
+  private final AtomicIntegerArray meetings;
+  private int generation = 0;
+
+  // The cost of the shortest path found so far, and the cell the two searches met in on it.
+  private volatile float bestCost;
+  private int meeting;
+
+  // Set by whichever search ends the plan, so the other stops too.
+  private volatile boolean finished;
+
+  // Runs the search from the goal, or null if both searches run on the calling thread.
+  private final ExecutorService worker;
+
+  /**
+   * Constructor. Runs both searches on the calling thread, taking turns.
+   *
+   * @param field The field on which the algorithm is working on.
+   */
+  public BidirectionalAstar(GriddedField field) {
+    this(field, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param field The field on which the algorithm is working on.
+   * @param parallel Whether to run the search from the goal on a thread of its own, while the
+   *     search from the robot runs on the calling thread.
+   */
+  public BidirectionalAstar(GriddedField field, boolean parallel) {
+    this.field = field;
+    grid = field.grid();
+    forward = new Frontier(grid.cellCount(), 1);
+    backward = new Frontier(grid.cellCount(), 2);
+    forward.other = backward;
+    backward.other = forward;
+    meetings = new AtomicIntegerArray(grid.cellCount());
+    worker =
+        parallel
+            ? Executors.newSingleThreadExecutor(
+                runnable -> {
+                  Thread thread = new Thread(runnable, "BidirectionalAstar");
+                  // Never keeps the robot program alive on its own.
+                  thread.setDaemon(true);
+                  return thread;
+                })
+            : null;
+  }
+
+  @Override
+  public List<Translation2d> findPath(Translation2d startPos, Translation2d goalPos) {
+    int start = field.coordsToCell(startPos);
+    int goal = field.coordsToCell(goalPos);
+
+    nextGeneration();
+    bestCost = Float.POSITIVE_INFINITY;
+    meeting = -1;
+    finished = false;
+    forward.begin(start, goal);
+    backward.begin(goal, start);
+    if (field.isBlocked(startPos) || field.isBlocked(goalPos)) {
+      return new ArrayList<>();
+    }
+
+    if (worker == null) {
+      // Takes turns, expanding whichever search has the smaller heap.
+      while (!finished) {
+        if (forward.search.open().size() <= backward.search.open().size()) {
+          forward.expand();
+        } else {
+          backward.expand();
+        }
+      }
+    } else {
+      Future<?> task = worker.submit(backward);
+      forward.run();
+      join(task);
+    }
+
+    if (meeting < 0) {
+      return new ArrayList<>();
+    }
+    return buildPath(startPos);
+  }
+
+  /**
+   * @return The number of cells expanded by both searches in the last plan.
+   */
+  @Override
+  public int getExpansions() {
+    return forward.expansions + backward.expansions;
+  }
+
+  /**
+   * @return The number of times either search lowered the cost of a cell in the last plan.
+   */
+  @Override
+  public int getRelaxations() {
+    return forward.relaxations + backward.relaxations;
+  }
+
+  /** Stops the worker thread, if there is one. */
+  @Override
+  public void close() {
+    if (worker != null) {
+      worker.shutdownNow();
+    }
+  }
+
+  private void nextGeneration() {
+    generation++;
+    // The generation has to fit above the two frontier bits.
+    if (generation == 1 << 29) {
+      for (int i = 0; i < meetings.length(); i++) {
+        meetings.set(i, 0);
+      }
+      generation = 1;
+    }
+  }
+
+  /* Marks a cell as reached by a search, and if the other search has reached it too, offers the
+   * path through it. The search writes its cost before marking the cell, and the mark is atomic, so
+   * when the second search to reach a cell marks it, it sees the cost of the first. */
+  private void meet(Frontier frontier, int id) {
+    int stamp = generation << 2;
+    int old;
+    int marks;
+    do {
+      old = meetings.get(id);
+      marks = (old & ~3) == stamp ? old : stamp;
+    } while (!meetings.compareAndSet(id, old, marks | frontier.bit));
+
+    if ((marks & frontier.other.bit) != 0) {
+      offer(id, frontier.search.g(id) + frontier.other.search.g(id));
+    }
+  }
+
+  private synchronized void offer(int id, float cost) {
+    if (cost < bestCost) {
+      bestCost = cost;
+      meeting = id;
+    }
+  }
+
+  // Waits for the search on the worker to end, even if this thread is interrupted, since the next
+  // plan reuses its state.
+  private void join(Future<?> task) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        task.get();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+        finished = true;
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("The search from the goal failed", e.getCause());
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private List<Translation2d> buildPath(Translation2d startPos) {
+    List<Integer> cells = new ArrayList<>();
+    for (int id = meeting; id >= 0; id = forward.search.parent(id)) {
+      cells.add(id);
+    }
+    Collections.reverse(cells);
+    // The search from the goal leads on from the meeting cell to the goal.
+    int cell = backward.search.parent(meeting);
+    while (cell >= 0) {
+      cells.add(cell);
+      cell = backward.search.parent(cell);
+    }
+
+    List<Translation2d> points = new ArrayList<>();
+    points.add(startPos);
+    for (int i = 1; i < cells.size(); i++) {
+      points.add(field.cellToTranslation(cells.get(i)));
+    }
+    return points;
+  }
+}
@@ -0,0 +1,77 @@
+package frc.robot.pathfinding;
+
+/**
+ * A fixed-size first-in first-out queue of int cell ids, backed by a ring buffer. A cell can only
+ * be in the queue once at a time, so a queue as large as the grid can never overflow, and nothing
+ * is allocated after construction.
+ */
+public class CellQueue {
+  private final int[] ring;
+  private final long[] queued;
+  private int head = 0;
+  private int size = 0;
+
+  /**
+   * Constructor. Allocates a queue that can hold every id from 0 to capacity - 1.
+   *
+   * @param capacity The number of ids, usually the cell count of the grid.
+   */
+  public CellQueue(int capacity) {
+    ring = new int[capacity];
+    queued = new long[(capacity + 63) >>> 6];
+  }
+
+  /**
+   * Adds a cell to the back of the queue, unless it is already in the queue.
+   *
+   * @param id A cell id.
+   * @return Whether the cell was added.
+   */
+  public boolean offer(int id) {
+    long bit = 1L << id;
+    if ((queued[id >>> 6] & bit) != 0) {
+      return false;
+    }
+    queued[id >>> 6] |= bit;
+
+    int tail = head + size;
+    ring[tail >= ring.length ? tail - ring.length : tail] = id;
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes the cell at the front of the queue. The queue must not be empty.
+   *
+   * @return The cell id at the front of the queue.
+   */
+  public int poll() {
+    int id = ring[head];
+    head = head + 1 == ring.length ? 0 : head + 1;
+    size--;
+    queued[id >>> 6] &= ~(1L << id);
+    return id;
+  }
+
+  /**
+   * @return Whether the queue is empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return The number of cells in the queue.
+   */
+  public int size() {
+    return size;
+  }
+
+  /** Removes every cell from the queue. Only touches the cells that are in it. */
+  public void clear() {
+    while (size > 0) {
+      poll();
+    }
+    head = 0;
+  }
+}
@@ -0,0 +1,74 @@
+package frc.robot.pathfinding;
+
+/**
+ * The set of cells whose occupancy has changed since it was last cleared. Incremental planners
+ * register one with the GriddedField, and repair only the cells in it on their next plan. Each cell
+ * is recorded once no matter how many times it flips.
+ */
+public class ChangedCells {
+  private final int[] cells;
+  private final long[] marked;
+  private int size = 0;
+  private boolean overflowed = false;
+
+  /**
+   * Constructor.
+   *
+   * @param cellCount The number of cells in the grid.
+   * @param capacity The most cells that can be recorded. If more change than this, the set
+   *     overflows and the planner should start over instead of repairing.
+   */
+  public ChangedCells(int cellCount, int capacity) {
+    cells = new int[capacity];
+    marked = new long[(cellCount + 63) >>> 6];
+  }
+
+  /**
+   * Records that a cell has changed.
+   *
+   * @param id A cell id.
+   */
+  public void add(int id) {
+    long bit = 1L << id;
+    if ((marked[id >>> 6] & bit) != 0) {
+      return;
+    }
+    if (size == cells.length) {
+      overflowed = true;
+      return;
+    }
+    marked[id >>> 6] |= bit;
+    cells[size++] = id;
+  }
+
+  /**
+   * @return The number of recorded cells.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param index An index between 0 and size() - 1.
+   * @return The recorded cell at that index.
+   */
+  public int get(int index) {
+    return cells[index];
+  }
+
+  /**
+   * @return Whether more cells changed than could be recorded.
+   */
+  public boolean overflowed() {
+    return overflowed;
+  }
+
+  /** Forgets every recorded cell. Only touches the cells that were recorded. */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      marked[cells[i] >>> 6] &= ~(1L << cells[i]);
+    }
+    size = 0;
+    overflowed = false;
+  }
+}
@@ -5,15 +5,42 @@ import static frc.robot.pathfinding.PathfindingConstants.*;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import frc.robot.pathfinding.Convenience.Point;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class CharliesAstar {
+public class CharliesAstar implements PathPlanner {
+
+  /** How the costs of the field are assigned. */
+  public enum Mode {
+    // The original chain reaction, guided by COST_CREATIVITY and MAX_ASSIGNED_VALUE.
+    FLOOD,
+    // A best-first A* search, which stops as soon as the setpoint is expanded.
+    ASTAR
+  }
 
   private GriddedField field;
 
   // The setpoint is the position of the robot, not the goal of the robot.
   private GridBox setPoint;
 
+  private Mode mode = Mode.FLOOD;
+
+  // Only allocated once the A* mode is used.
+  private SearchState search;
+
+  // The boxes waiting to be assigned by the chain reaction. Only allocated once it is used.
+  private CellQueue queue;
+
+  private int expansions = 0;
+  private int relaxations = 0;
+
+  // Fields computed ahead of time for the goals the robot drives to often.
+  private final List<GoalDistanceField> goalFields = new ArrayList<>();
+
+  // The field of the current goal, or null if it does not have one.
+  private GoalDistanceField goalField;
+
   // The set of translations to adjacent squares. Starts at the right, rotates counter-clockwise.
   public static final Point[] intpair = {
     new Point(1, 0),
@@ -30,6 +57,21 @@ public class CharliesAstar {
   public static final List<Point> diagBoxes =
       List.of(new Point(1, 1), new Point(-1, 1), new Point(-1, -1), new Point(1, -1));
 
+  // The index in intpair of each translation, looked up by (y + 1) * 3 + (x + 1).
+  private static final int[] directionLookup = {5, 6, 7, 4, -1, 0, 3, 2, 1};
+
+  /* The translations of intpair split into plain ints, indexed by direction, so the hot loops
+   * never touch a Point. */
+  private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+  private static final int[] DY = {0, 1, 1, 1, 0, -1, -1, -1};
+
+  /* The directions of threeRelevantCoords and fiveRelevantCoords, as turns from the octant in
+   * eighths of a circle. A direction is (octant + turn) & 7, which wraps negative turns too. */
+  private static final int[] THREE_TURNS = {0, -1, 1};
+  private static final int[] THREE_TURNS_REVERSED = {4, 3, 5};
+  private static final int[] FIVE_TURNS = {0, -1, 1, 2, -2};
+  private static final int[] FIVE_TURNS_REVERSED = {4, 3, 5, 2, 6};
+
   /**
    * Constructor for the A star algorithm.
    *
@@ -41,6 +83,17 @@ public class CharliesAstar {
     this.setPoint = setPoint;
   }
 
+  /**
+   * Finds which translation in intpair moves by the given amount.
+   *
+   * @param x The change in x, between -1 and 1.
+   * @param y The change in y, between -1 and 1.
+   * @return The index of the translation in intpair, or -1 if there is no movement.
+   */
+  public static int directionIndex(int x, int y) {
+    return directionLookup[(y + 1) * 3 + (x + 1)];
+  }
+
   /**
    * Finds the angle, as a Rotation2d, from one GridBox to another.
    *
@@ -54,22 +107,53 @@ public class CharliesAstar {
   }
 
   /**
-   * Shortcut to whether the movement is diagonal. Will only work if given items from
-   * CharliesAstar.intpair. This method exists for optimization reasons. The long way around this
-   * problem is to calculate the angle and then determine whether it is diagonal from there.
+   * Finds which of the eight directions of intpair is closest to the angle of a vector, the same
+   * way rounding the angle to the nearest 45 degrees would, but with integer math only.
    *
-   * @param p A Point from intpair.
-   * @return If the point is in CharliesAstar.diagBoxes.
+   * @param dx The x value of the vector.
+   * @param dy The y value of the vector.
+   * @return The index in intpair of the closest direction. 0 if the vector has no length.
    */
-  private static boolean diagonalMovement(Point p) {
-    return diagBoxes.contains(p);
+  public static int octant(int dx, int dy) {
+    if (dx == 0 && dy == 0) {
+      return 0;
+    }
+    long ax = Math.abs(dx);
+    long ay = Math.abs(dy);
+    /* Within a quadrant, a vector is within 22.5 degrees of the x axis when ay < (sqrt(2) - 1) ax,
+     * which squares to (ax + ay)^2 < 2 ax^2. The two sides are never equal for integers, as
+     * sqrt(2) is irrational. */
+    long sum = (ax + ay) * (ax + ay);
+    int turn;
+    if (sum < 2 * ax * ax) {
+      turn = 0;
+    } else if (sum < 2 * ay * ay) {
+      turn = 2;
+    } else {
+      turn = 1;
+    }
+    if (dy >= 0) {
+      return dx >= 0 ? turn : 4 - turn;
+    }
+    return dx < 0 ? 4 + turn : (8 - turn) & 7;
+  }
+
+  // Turns an angle into the closest direction of intpair, wrapping negative angles around.
+  private static int octant(Rotation2d rotation) {
+    return Math.floorMod((int) Math.floor((rotation.getDegrees() + 22.5) / 45), 8);
   }
 
-  private static double findCost(Point p) {
-    return diagonalMovement(p) ? 1.4 : 1;
-    /* 1.4 is an approximation for the square root of two.
-     * Extreme precision is not needed especially with the amount
-     * of calculations per second using this number. */
+  /**
+   * The cost of one step. Diagonal steps cost DIAGONAL_COST, 1.4, an approximation of the square
+   * root of two. Extreme precision is not needed especially with the amount of calculations per
+   * second using this number.
+   *
+   * @param direction The index of the step in intpair.
+   * @return The cost of the step.
+   */
+  private static double findCost(int direction) {
+    // The odd directions are the diagonals.
+    return (direction & 1) == 0 ? 1 : DIAGONAL_COST;
   }
 
   /**
@@ -80,33 +164,7 @@ public class CharliesAstar {
    * @return Three pairs of integers which represent (x,y) translation to the three boxes
    */
   public static Point[] threeRelevantCoords(Rotation2d rotation, boolean reverse) {
-    /* Using degrees because it's more memory efficient than an
-     * irrational decimal (multiple of pi) */
-    double degrees = rotation.getDegrees();
-
-    /* Converting to an int rounds down. This gives us the general rotation
-     * (right = 0, top right = 1, top left = 3, etc) */
-    int directionChange = ((int) (degrees + 22.5) / 45);
-
-    // Assigning the three values to result. Sadly, ternary operators don't work with arrays.
-    Point[] result;
-    if (!reverse) {
-      result =
-          new Point[] {
-            intpair[directionChange % 8],
-            intpair[(directionChange - 1) % 8],
-            intpair[(directionChange + 1) % 8]
-          };
-    } else {
-      result =
-          new Point[] {
-            intpair[(directionChange + 4) % 8],
-            intpair[(directionChange + 3) % 8],
-            intpair[(directionChange + 5) % 8]
-          };
-    }
-
-    return result;
+    return relevantCoords(octant(rotation), reverse ? THREE_TURNS_REVERSED : THREE_TURNS);
   }
 
   /**
@@ -117,35 +175,13 @@ public class CharliesAstar {
    * @return Five pairs of integers which represent (x,y) translation to the five boxes.
    */
   public static Point[] fiveRelevantCoords(Rotation2d rotation, boolean reverse) {
-    /* Using degrees because it's more memory efficient than an
-     * irrational decimal (multiple of pi) */
-    double degrees = rotation.getDegrees();
-
-    /* Converting to an int rounds down. This gives us the general rotation
-     * (right = 0, top right = 1, top left = 3, etc) */
-    int directionChange = ((int) (degrees + 22.5) / 45);
-
-    // Assigning the three values to result. Sadly, ternary operators don't work with arrays.
-    Point[] result;
-    if (!reverse) {
-      result =
-          new Point[] {
-            intpair[directionChange % 8],
-            intpair[(directionChange - 1) % 8],
-            intpair[(directionChange + 1) % 8],
-            intpair[(directionChange + 2) % 8],
-            intpair[(directionChange - 2) % 8]
-          };
-    } else {
-      result =
-          new Point[] {
-            intpair[(directionChange + 4) % 8],
-            intpair[(directionChange + 3) % 8],
-            intpair[(directionChange + 5) % 8],
-            intpair[(directionChange + 2) % 8],
-            intpair[(directionChange + 6) % 8]
-          };
-      // Not very beautiful code, is it? Unfortunately, it is the most effective.
+    return relevantCoords(octant(rotation), reverse ? FIVE_TURNS_REVERSED : FIVE_TURNS);
+  }
+
+  private static Point[] relevantCoords(int octant, int[] turns) {
+    Point[] result = new Point[turns.length];
+    for (int i = 0; i < turns.length; i++) {
+      result[i] = intpair[(octant + turns[i]) & 7];
     }
     return result;
   }
@@ -159,74 +195,203 @@ public class CharliesAstar {
    *     goal.
    */
   public void firstCostAssign(GridBox startingPoint) {
+    goalField = goalFieldFor(startingPoint.getId());
+    if (goalField != null) {
+      // The costs are already known. Moving obstacles are searched around as they are met.
+      return;
+    }
+    if (mode == Mode.ASTAR) {
+      search(startingPoint);
+      return;
+    }
     startingPoint.setCost(startingPoint, 0, true);
     assignCosts(startingPoint);
   }
 
   /**
-   * The chain reaction for the cost assignment. This utilizes recursion to make sure that no
-   * important box is left unassigned. After every box is assigned, it assigns a certain amount of
-   * boxes around them. If the boxes are past a certain distance from the starting point, they will
-   * begin to only assign costs to boxes in front of them in the direction of the set point, so that
-   * unimportant boxes in the corner are not assigned, as a method of optimization.
+   * The octile distance between two cells, which is the cost of the shortest 8-connected path
+   * between them when there are no obstacles. Never overestimates, so it is used as the A*
+   * heuristic.
    *
-   * @param box The box which is currently being assigned.
+   * @param dx The difference in x between the cells.
+   * @param dy The difference in y between the cells.
+   * @return The octile distance, using the same step costs as findCost.
    */
-  public void assignCosts(GridBox box) {
-    // Direction for the directional box methods.
-    Rotation2d rotation = pointDirection(box);
-
-    if (box != setPoint) {
-      if (box.getCost() < COST_CREATIVITY) { // If the current box is within the current radius.
-        for (Point i : intpair) {
-
-          // Getting a box adjacent to the inputted one.
-          GridBox proposedBox = field.field()[box.getX() + i.getX()][box.getY() + i.getY()];
-
-          // Setting the cost of the adjacent box.
-          box.setCost(proposedBox, proposedBox.getCost() + findCost(i), false);
-          if (proposedBox.assignable(box)) {
-            /* So long as this proposed box is assignable, the method will recur
-             * with this new proposed box as the input. */
-            assignCosts(proposedBox);
-          }
+  public static float octileDistance(int dx, int dy) {
+    dx = Math.abs(dx);
+    dy = Math.abs(dy);
+    return Math.max(dx, dy) + (float) (DIAGONAL_COST - 1) * Math.min(dx, dy);
+  }
+
+  /**
+   * Runs an A* search from the goal to the setpoint. The costs of the expanded cells are their
+   * cost to the goal, and each cell remembers which neighbour leads toward the goal. The search
+   * stops as soon as the setpoint is taken off the heap, or once MAX_EXPANSIONS cells have been
+   * expanded.
+   *
+   * @param goal The goal of the robot, which is where the search starts.
+   * @return Whether a path to the setpoint was found.
+   */
+  public boolean search(GridBox goal) {
+    if (search == null) {
+      search = new SearchState(field.grid().cellCount());
+    }
+    search.reset();
+    expansions = 0;
+    relaxations = 0;
+
+    FieldGrid grid = field.grid();
+    IndexedMinHeap open = search.open();
+    int target = setPoint.getId();
+    int targetX = setPoint.getX();
+    int targetY = setPoint.getY();
+
+    int start = goal.getId();
+    search.reach(start, 0, -1);
+    open.push(start, octileDistance(goal.getX() - targetX, goal.getY() - targetY), 0);
+
+    while (!open.isEmpty() && expansions < MAX_EXPANSIONS) {
+      int current = open.pop();
+      search.close(current);
+      expansions++;
+
+      if (current == target) {
+        return true;
+      }
+
+      int x = grid.x(current);
+      int y = grid.y(current);
+      float currentCost = search.g(current);
+
+      for (int direction = 0; direction < 8; direction++) {
+        int dx = DX[direction];
+        int dy = DY[direction];
+        if (!field.canMove(x, y, dx, dy)) {
+          continue;
+        }
+        int neighbour = grid.id(x + dx, y + dy);
+        if (search.isClosed(neighbour)) {
+          continue;
         }
-      } else { // If the current box is not within the current radius.
-        for (Point i : fiveRelevantCoords(rotation, true)) {
 
-          // Getting an adjacent box.
-          GridBox proposedBox = field.field()[box.getX() + i.getX()][box.getY() + i.getY()];
-          box.setCost(proposedBox, proposedBox.getCost() + findCost(i), false);
+        float proposed = currentCost + (float) findCost(direction);
+        if (proposed < search.g(neighbour)) {
+          search.reach(neighbour, proposed, current);
+          relaxations++;
+          float heuristic = octileDistance(x + dx - targetX, y + dy - targetY);
+          // Ties are broken toward the cell closer to the setpoint.
+          open.push(neighbour, proposed + heuristic, heuristic);
         }
+      }
+    }
+    return false;
+  }
 
-        for (Point i : threeRelevantCoords(rotation, false)) {
+  /**
+   * The chain reaction for the cost assignment. After every box is assigned, it assigns a certain
+   * amount of boxes around them. If the boxes are past a certain distance from the starting point,
+   * they will begin to only assign costs to boxes in front of them in the direction of the set
+   * point, so that unimportant boxes in the corner are not assigned, as a method of optimization.
+   *
+   * <p>Boxes waiting to be assigned are kept in a preallocated queue rather than on the call stack,
+   * so an open field can not overflow the stack, and nothing is allocated for the queue.
+   *
+   * @param box The box from which the chain reaction starts.
+   */
+  public void assignCosts(GridBox box) {
+    if (queue == null) {
+      queue = new CellQueue(field.grid().cellCount());
+    }
+    queue.clear();
+    expansions = 0;
+    relaxations = 0;
+    queue.offer(box.getId());
+    while (!queue.isEmpty()) {
+      assignCost(queue.poll());
+    }
+  }
 
-          // Getting an adjacent box.
-          GridBox proposedBox = field.field()[box.getX() + i.getX()][box.getY() + i.getY()];
+  /**
+   * Assigns the costs around a single box, and queues the boxes which should be assigned next.
+   * Works on cell ids and the direction tables alone, so it allocates nothing.
+   *
+   * @param id The cell id of the box which is currently being assigned.
+   */
+  private void assignCost(int id) {
+    FieldGrid grid = field.grid();
+    expansions++;
+    if (id == setPoint.getId()) {
+      return;
+    }
+    int x = grid.x(id);
+    int y = grid.y(id);
+
+    /* The box takes the cheapest cost its neighbours offer before deciding how far to spread.
+     * Until then it is UNASSIGNED, which would put every box outside the radius. */
+    for (int direction = 0; direction < 8; direction++) {
+      int neighbour = neighbour(x, y, direction);
+      if (neighbour >= 0) {
+        takeCost(id, neighbour, direction);
+      }
+    }
 
-          if (proposedBox.assignable(box)) {
-            /* So long as this proposed box is assignable, the method will recur
-             * with this new proposed box as the input. */
-            assignCosts(proposedBox);
-          }
+    if (grid.cost(id) < COST_CREATIVITY) { // If the current box is within the current radius.
+      for (int direction = 0; direction < 8; direction++) {
+        int neighbour = neighbour(x, y, direction);
+        if (neighbour >= 0 && grid.assignable(neighbour, (direction + 4) & 7)) {
+          /* So long as this proposed box is assignable, it will be assigned
+           * once the boxes queued before it are done. */
+          queue.offer(neighbour);
+        }
+      }
+    } else { // If the current box is not within the current radius.
+      // The direction from the box to the setpoint.
+      int octant = octant(setPoint.getX() - x, setPoint.getY() - y);
+      for (int turn : THREE_TURNS) {
+        int direction = (octant + turn) & 7;
+        int neighbour = neighbour(x, y, direction);
+        if (neighbour >= 0 && grid.assignable(neighbour, (direction + 4) & 7)) {
+          /* So long as this proposed box is assignable, it will be assigned
+           * once the boxes queued before it are done. */
+          queue.offer(neighbour);
         }
       }
     }
   }
 
+  // The cell one step from (x, y) in a direction of intpair, or -1 if it is off the grid.
+  private int neighbour(int x, int y, int direction) {
+    int nx = x + DX[direction];
+    int ny = y + DY[direction];
+    return field.grid().inBounds(nx, ny) ? field.grid().id(nx, ny) : -1;
+  }
+
+  // Sets the cost of a box from the cost of its neighbour in a direction, the way GridBox.setCost
+  // does.
+  private void takeCost(int id, int neighbour, int direction) {
+    FieldGrid grid = field.grid();
+    grid.setCost(id, direction, (float) (grid.cost(neighbour) + findCost(direction)), false);
+    relaxations++;
+  }
+
   /**
-   * Finds which box, adjacent to the inputted one, has the lowest cost. Includes diagonals.
+   * Finds which box, adjacent to the inputted one, has the lowest cost. Includes diagonals. Every
+   * assigned box but the goal took its cost from a cheaper neighbour, so going downhill always
+   * ends at the goal.
    *
-   * @param box The inputted box.
-   * @return The box adjacent to the inputted box, of which has the lowest cost of all adjacent
-   *     boxes.
+   * @param id The cell id of the inputted box.
+   * @return The cell id of the box adjacent to the inputted box, of which has the lowest cost of
+   *     all adjacent boxes, or the inputted box if none are lower than it.
    */
-  private GridBox lowestCostNearby(GridBox box) {
-    GridBox lowest = box;
-    for (Point point : intpair) {
-      GridBox proposedBox = field.field()[box.getX() + point.getX()][box.getY() + point.getY()];
-      if (!proposedBox.checkObstacled() && proposedBox.getCost() > lowest.getCost()) {
-        lowest = proposedBox;
+  private int lowestCostNearby(int id) {
+    FieldGrid grid = field.grid();
+    int x = grid.x(id);
+    int y = grid.y(id);
+    int lowest = id;
+    for (int direction = 0; direction < 8; direction++) {
+      int proposed = neighbour(x, y, direction);
+      if (proposed >= 0 && !grid.isBlocked(proposed) && grid.cost(proposed) < grid.cost(lowest)) {
+        lowest = proposed;
       }
     }
     return lowest;
@@ -238,20 +403,57 @@ public class CharliesAstar {
    *
    * @param pathStart The start point of the path.
    * @param pathEnd The end point of the path.
-   * @return A Translation2d list with the points in the path from pathStart to pathEnd.
+   * @return A Translation2d list with the points in the path from pathStart to pathEnd, or an empty
+   *     list if the costs do not lead from pathStart to pathEnd.
    */
   public List<Translation2d> pathMaker(Translation2d pathStart, Translation2d pathEnd) {
-    // Creating the list
-    List<Translation2d> points = List.of(pathStart);
+    if (goalField != null) {
+      return fieldPath(pathStart);
+    }
+    if (mode == Mode.ASTAR) {
+      return searchedPath(pathStart);
+    }
 
-    // Appending to the list
-    while (!points.contains(pathEnd)) {
-      points.add(
-          lowestCostNearby(field.coordsToBox(points.get(points.size() - 1))).boxToTranslation());
+    // Creating the list
+    List<Translation2d> points = new ArrayList<>(List.of(pathStart));
+    int end = field.coordsToCell(pathEnd);
+    int current = field.coordsToCell(pathStart);
+
+    // Appending to the list. The costs only go down, so no box is visited twice.
+    while (current != end) {
+      int next = lowestCostNearby(current);
+      if (next == current) {
+        // The flood never reached pathStart, so there is nowhere downhill to go.
+        return new ArrayList<>();
+      }
+      current = next;
+      points.add(field.cellToTranslation(current));
     }
     return points;
   }
 
+  /**
+   * Assigns the costs from the goal to the robot, then creates the path between them.
+   *
+   * @param start The position of the robot. Becomes the new setPoint.
+   * @param goal The goal of the robot.
+   * @return A Translation2d list with the points in the path from start to goal, or an empty list
+   *     if there is no path.
+   */
+  @Override
+  public List<Translation2d> findPath(Translation2d start, Translation2d goal) {
+    if (field.isBlocked(start) || field.isBlocked(goal)) {
+      return new ArrayList<>();
+    }
+    changeSetPoint(field.coordsToBox(start));
+    GridBox goalBox = field.coordsToBox(goal);
+    if (mode == Mode.FLOOD && goalFieldFor(goalBox.getId()) == null) {
+      field.grid().resetCosts();
+    }
+    firstCostAssign(goalBox);
+    return pathMaker(start, goal);
+  }
+
   /**
    * Finds the next point in the path from the pathStart to the pathEnd. This method assumes that
    * the GridBoxes have already been assigned costs.
@@ -260,7 +462,245 @@ public class CharliesAstar {
    * @return The next Translation2d in the path.
    */
   public Translation2d nextPos(Translation2d currentPos) {
-    return lowestCostNearby(field.coordsToBox(currentPos)).boxToTranslation();
+    if (goalField != null) {
+      int current = field.coordsToCell(currentPos);
+      if (current == goalField.goal()) {
+        return currentPos;
+      }
+      if (fieldClear(current)) {
+        return field.cellToTranslation(fieldStep(current));
+      }
+      List<Translation2d> detour = detour(current);
+      return detour.isEmpty() ? currentPos : detour.get(0);
+    }
+    if (mode == Mode.ASTAR) {
+      int current = field.coordsToCell(currentPos);
+      int next = search == null ? -1 : search.parent(current);
+      return next < 0 ? currentPos : field.cellToTranslation(next);
+    }
+    return field.cellToTranslation(lowestCostNearby(field.coordsToCell(currentPos)));
+  }
+
+  /**
+   * Follows the parents left by the last A* search from a point to the goal.
+   *
+   * @param pathStart The start point of the path.
+   * @return The path from pathStart to the goal, or an empty list if the last search did not reach
+   *     pathStart.
+   */
+  private List<Translation2d> searchedPath(Translation2d pathStart) {
+    List<Translation2d> points = new ArrayList<>();
+    int current = field.coordsToCell(pathStart);
+    if (search == null || search.g(current) == SearchState.UNREACHED) {
+      return points;
+    }
+
+    points.add(pathStart);
+    for (int next = search.parent(current); next >= 0; next = search.parent(next)) {
+      points.add(field.cellToTranslation(next));
+    }
+    return points;
+  }
+
+  /**
+   * Follows the goal field of the current goal from a point, searching around the moving obstacles
+   * where they are in the way.
+   *
+   * @param pathStart The start point of the path.
+   * @return The path from pathStart to the goal, or an empty list if there is none.
+   */
+  private List<Translation2d> fieldPath(Translation2d pathStart) {
+    List<Translation2d> points = new ArrayList<>();
+    int start = field.coordsToCell(pathStart);
+    expansions = 0;
+    if (goalField.cost(start) == GoalDistanceField.UNREACHABLE) {
+      return points;
+    }
+
+    if (!fieldClear(start)) {
+      // Going around the moving obstacle might have to start before reaching it, so the whole path
+      // is searched instead of only the part after it.
+      List<Translation2d> detour = detour(start);
+      if (detour.isEmpty() && start != goalField.goal()) {
+        return detour;
+      }
+      points.add(pathStart);
+      points.addAll(detour);
+      return points;
+    }
+
+    points.add(pathStart);
+    for (int current = start; current != goalField.goal(); current = fieldStep(current)) {
+      points.add(field.cellToTranslation(fieldStep(current)));
+    }
+    return points;
+  }
+
+  /**
+   * Finds whether the goal field of the current goal leads from a cell to the goal without any
+   * moving obstacle in the way.
+   *
+   * @param from A cell id.
+   * @return True if every step from the cell to the goal is free.
+   */
+  private boolean fieldClear(int from) {
+    int current = from;
+    // A path can never be longer than the number of cells.
+    for (int steps = 0; current != goalField.goal(); steps++) {
+      if (current < 0 || steps == field.grid().cellCount()) {
+        return false;
+      }
+      current = fieldStep(current);
+    }
+    return true;
+  }
+
+  /**
+   * Takes one step along the goal field of the current goal.
+   *
+   * @param current A cell id.
+   * @return The next cell toward the goal, or -1 if the field has no step from the cell or a moving
+   *     obstacle blocks it.
+   */
+  private int fieldStep(int current) {
+    int direction = goalField.direction(current);
+    if (direction < 0) {
+      return -1;
+    }
+    FieldGrid grid = field.grid();
+    int x = grid.x(current);
+    int y = grid.y(current);
+    Point step = intpair[direction];
+    if (!field.canMove(x, y, step.getX(), step.getY())) {
+      return -1;
+    }
+    return grid.id(x + step.getX(), y + step.getY());
+  }
+
+  /**
+   * Runs an A* search from a cell to the goal of the current goal field, around the moving
+   * obstacles. The costs of the goal field are the exact costs without the moving obstacles, so
+   * they are a heuristic which never overestimates, and the search only spreads out where the
+   * moving obstacles are in the way.
+   *
+   * @param from The cell to start from.
+   * @return The cells after from up to and including the goal, or an empty list if the search did
+   *     not reach the goal.
+   */
+  private List<Translation2d> detour(int from) {
+    if (search == null) {
+      search = new SearchState(field.grid().cellCount());
+    }
+    search.reset();
+    expansions = 0;
+    relaxations = 0;
+
+    FieldGrid grid = field.grid();
+    IndexedMinHeap open = search.open();
+    int goal = goalField.goal();
+    if (field.isBlocked(from) || field.isBlocked(goal)) {
+      return new ArrayList<>();
+    }
+    search.reach(from, 0, -1);
+    open.push(from, goalField.cost(from), goalField.cost(from));
+
+    while (!open.isEmpty() && expansions < MAX_EXPANSIONS) {
+      int current = open.pop();
+      search.close(current);
+      expansions++;
+
+      if (current == goal) {
+        List<Translation2d> points = new ArrayList<>();
+        for (int cell = goal; cell != from; cell = search.parent(cell)) {
+          points.add(field.cellToTranslation(cell));
+        }
+        Collections.reverse(points);
+        return points;
+      }
+
+      int x = grid.x(current);
+      int y = grid.y(current);
+      float currentCost = search.g(current);
+
+      for (int direction = 0; direction < 8; direction++) {
+        if (!field.canMove(x, y, DX[direction], DY[direction])) {
+          continue;
+        }
+        int neighbour = grid.id(x + DX[direction], y + DY[direction]);
+        float heuristic = goalField.cost(neighbour);
+        if (search.isClosed(neighbour) || heuristic == GoalDistanceField.UNREACHABLE) {
+          continue;
+        }
+
+        float proposed = currentCost + (float) findCost(direction);
+        if (proposed < search.g(neighbour)) {
+          search.reach(neighbour, proposed, current);
+          relaxations++;
+          open.push(neighbour, proposed + heuristic, heuristic);
+        }
+      }
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Lets the algorithm use a goal distance field whenever its goal is the goal of a path, instead
+   * of assigning the costs from the goal.
+   *
+   * @param goalDistanceField A field computed for the same grid and stationary obstacles.
+   */
+  public void addGoalField(GoalDistanceField goalDistanceField) {
+    goalFields.add(goalDistanceField);
+  }
+
+  /**
+   * @param goal A goal, in cm.
+   * @return Whether a goal distance field has been added for the cell the goal is in.
+   */
+  public boolean hasGoalField(Translation2d goal) {
+    return goalFieldFor(field.coordsToCell(goal)) != null;
+  }
+
+  // The goal field whose goal is in a cell, or null if there is none.
+  private GoalDistanceField goalFieldFor(int goal) {
+    for (int i = 0; i < goalFields.size(); i++) {
+      if (goalFields.get(i).goal() == goal) {
+        return goalFields.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return The number of cells expanded by the last search or cost assignment.
+   */
+  @Override
+  public int getExpansions() {
+    return expansions;
+  }
+
+  /**
+   * @return The number of costs set by the last search or cost assignment.
+   */
+  @Override
+  public int getRelaxations() {
+    return relaxations;
+  }
+
+  /**
+   * @return How the costs of the field are currently assigned.
+   */
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * Changes how the costs of the field are assigned.
+   *
+   * @param mode The new mode.
+   */
+  public void setMode(Mode mode) {
+    this.mode = mode;
   }
 
   /**
@@ -0,0 +1,289 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import java.nio.FloatBuffer;
+
+/**
+ * How far every cell of a FieldGrid is from the nearest obstacle, found with the linear-time
+ * Euclidean distance transform from Felzenszwalb and Huttenlocher. A cell is blocked when the
+ * center of the robot there would be within CLEARANCE_RADIUS of an obstacle, so obstacles are
+ * stored at their real size and this is the only place the robot's size is accounted for.
+ *
+ * <p>The whole grid is transformed once when the field is built. After that, only the regions
+ * marked dirty are transformed again, each padded by the clearance radius, since a cell can only
+ * be blocked by an obstacle within that distance. Clearances larger than the radius are saturated
+ * to a single value, so those regions give the same answer as a full transform would.
+ */
+public class ClearanceMap {
+  // Large enough to stand for "no obstacle", small enough that adding a squared distance to it
+  // does not overflow.
+  private static final float FAR = 1e20f;
+
+  // The most separate dirty regions kept before new ones are merged into old ones.
+  private static final int MAX_DIRTY_REGIONS = 8;
+
+  private final FieldGrid grid;
+
+  // The radius and the padding around a dirty region, in cells.
+  private final int radiusCells;
+  private final float blockedSquared;
+  private final float saturatedSquared;
+
+  // The squared distance in cells from each cell to the nearest obstacle, saturated.
+  private final float[] squaredDistance;
+
+  // The result of the column pass, laid out the same as the grid.
+  private final float[] columnPass;
+
+  // Scratch space for the one-dimensional transform, big enough for the longest side.
+  private final float[] input;
+  private final float[] output;
+  private final int[] parabolas;
+  private final float[] boundaries;
+
+  // The regions which have changed since the last update, as inclusive cell bounds.
+  private final int[] dirtyMinX = new int[MAX_DIRTY_REGIONS];
+  private final int[] dirtyMinY = new int[MAX_DIRTY_REGIONS];
+  private final int[] dirtyMaxX = new int[MAX_DIRTY_REGIONS];
+  private final int[] dirtyMaxY = new int[MAX_DIRTY_REGIONS];
+  private int dirtyCount = 0;
+
+  /**
+   * Constructor. Nothing is blocked until {@link #rebuild()} is called.
+   *
+   * @param grid The grid whose obstacles are measured, and whose blocked cells are kept up to date.
+   */
+  public ClearanceMap(FieldGrid grid) {
+    this.grid = grid;
+
+    double radius = CLEARANCE_RADIUS / GRID_SIDE_LENGTH;
+    radiusCells = (int) Math.ceil(radius);
+    blockedSquared = (float) (radius * radius);
+    saturatedSquared = radiusCells * radiusCells + 1;
+
+    squaredDistance = new float[grid.cellCount()];
+    columnPass = new float[grid.cellCount()];
+
+    int longest = Math.max(grid.width(), grid.height());
+    input = new float[longest];
+    output = new float[longest];
+    parabolas = new int[longest];
+    boundaries = new float[longest + 1];
+  }
+
+  /**
+   * @param id A cell id.
+   * @return The distance in cm from the cell to the nearest obstacle, measured between cell
+   *     centers. Distances much past CLEARANCE_RADIUS all come out the same.
+   */
+  public double clearance(int id) {
+    return Math.sqrt(squaredDistance[id]) * GRID_SIDE_LENGTH;
+  }
+
+  /**
+   * Copies out the squared distance of every cell, in cells.
+   *
+   * @param out Where to write the distances. Needs room for one float per cell.
+   */
+  void write(FloatBuffer out) {
+    out.put(squaredDistance);
+  }
+
+  /**
+   * Replaces the distance of every cell with ones written by {@link #write(FloatBuffer)}, and
+   * updates which cells are blocked to match. Much faster than {@link #rebuild()}, for when the
+   * distances were worked out ahead of time for the same obstacles.
+   *
+   * @param in Where to read the distances from.
+   */
+  void read(FloatBuffer in) {
+    dirtyCount = 0;
+    in.get(squaredDistance);
+    for (int id = 0; id < squaredDistance.length; id++) {
+      grid.setBlocked(id, squaredDistance[id] <= blockedSquared);
+    }
+  }
+
+  /** Transforms the whole grid. */
+  public void rebuild() {
+    dirtyCount = 0;
+    transform(0, 0, grid.width() - 1, grid.height() - 1, 0, 0, grid.width() - 1, grid.height() - 1);
+  }
+
+  /**
+   * Records that the obstacles inside a region have changed. The region is transformed again on
+   * the next {@link #update()}.
+   *
+   * @param minX The x value of the first cell of the region.
+   * @param minY The y value of the first cell of the region.
+   * @param maxX The x value of the last cell of the region, inclusive.
+   * @param maxY The y value of the last cell of the region, inclusive.
+   */
+  public void markDirty(int minX, int minY, int maxX, int maxY) {
+    minX = Math.max(minX, 0);
+    minY = Math.max(minY, 0);
+    maxX = Math.min(maxX, grid.width() - 1);
+    maxY = Math.min(maxY, grid.height() - 1);
+    if (minX > maxX || minY > maxY) {
+      return;
+    }
+
+    // Regions which touch once padded would mostly be transformed twice, so they are merged.
+    for (int i = 0; i < dirtyCount; i++) {
+      if (minX <= dirtyMaxX[i] + 2 * radiusCells
+          && dirtyMinX[i] <= maxX + 2 * radiusCells
+          && minY <= dirtyMaxY[i] + 2 * radiusCells
+          && dirtyMinY[i] <= maxY + 2 * radiusCells) {
+        merge(i, minX, minY, maxX, maxY);
+        return;
+      }
+    }
+
+    if (dirtyCount == MAX_DIRTY_REGIONS) {
+      // Out of room, so the new region goes into whichever one grows the least.
+      int best = 0;
+      long bestGrowth = Long.MAX_VALUE;
+      for (int i = 0; i < dirtyCount; i++) {
+        long growth =
+            area(
+                    Math.min(minX, dirtyMinX[i]),
+                    Math.min(minY, dirtyMinY[i]),
+                    Math.max(maxX, dirtyMaxX[i]),
+                    Math.max(maxY, dirtyMaxY[i]))
+                - area(dirtyMinX[i], dirtyMinY[i], dirtyMaxX[i], dirtyMaxY[i]);
+        if (growth < bestGrowth) {
+          bestGrowth = growth;
+          best = i;
+        }
+      }
+      merge(best, minX, minY, maxX, maxY);
+      return;
+    }
+
+    dirtyMinX[dirtyCount] = minX;
+    dirtyMinY[dirtyCount] = minY;
+    dirtyMaxX[dirtyCount] = maxX;
+    dirtyMaxY[dirtyCount] = maxY;
+    dirtyCount++;
+  }
+
+  private void merge(int i, int minX, int minY, int maxX, int maxY) {
+    dirtyMinX[i] = Math.min(dirtyMinX[i], minX);
+    dirtyMinY[i] = Math.min(dirtyMinY[i], minY);
+    dirtyMaxX[i] = Math.max(dirtyMaxX[i], maxX);
+    dirtyMaxY[i] = Math.max(dirtyMaxY[i], maxY);
+  }
+
+  private static long area(int minX, int minY, int maxX, int maxY) {
+    return (long) (maxX - minX + 1) * (maxY - minY + 1);
+  }
+
+  /** Transforms every region marked dirty since the last update. */
+  public void update() {
+    int width = grid.width();
+    int height = grid.height();
+    for (int i = 0; i < dirtyCount; i++) {
+      // Any cell within the radius of a change may have changed. Any obstacle within the radius of
+      // one of those cells has to be seen.
+      int writeMinX = Math.max(0, dirtyMinX[i] - radiusCells);
+      int writeMinY = Math.max(0, dirtyMinY[i] - radiusCells);
+      int writeMaxX = Math.min(width - 1, dirtyMaxX[i] + radiusCells);
+      int writeMaxY = Math.min(height - 1, dirtyMaxY[i] + radiusCells);
+      transform(
+          Math.max(0, writeMinX - radiusCells),
+          Math.max(0, writeMinY - radiusCells),
+          Math.min(width - 1, writeMaxX + radiusCells),
+          Math.min(height - 1, writeMaxY + radiusCells),
+          writeMinX,
+          writeMinY,
+          writeMaxX,
+          writeMaxY);
+    }
+    dirtyCount = 0;
+  }
+
+  /**
+   * Runs the distance transform over one region and stores the results for a smaller region inside
+   * it. All bounds are inclusive.
+   */
+  private void transform(
+      int minX,
+      int minY,
+      int maxX,
+      int maxY,
+      int writeMinX,
+      int writeMinY,
+      int writeMaxX,
+      int writeMaxY) {
+    // Down each column, the squared distance to the nearest obstacle in that column. Two sweeps are
+    // enough for this pass, since every cell either is an obstacle or is not.
+    for (int x = minX; x <= maxX; x++) {
+      float distance = FAR;
+      for (int y = minY; y <= maxY; y++) {
+        int id = grid.id(x, y);
+        distance = grid.isObstacled(id) ? 0 : distance + 1;
+        columnPass[id] = distance;
+      }
+      distance = FAR;
+      for (int y = maxY; y >= minY; y--) {
+        int id = grid.id(x, y);
+        distance = columnPass[id] == 0 ? 0 : distance + 1;
+        float nearest = Math.min(distance, columnPass[id]);
+        columnPass[id] = nearest < FAR ? nearest * nearest : FAR;
+      }
+    }
+
+    // Along each row, combining the column distances into the distance in two dimensions.
+    int columns = maxX - minX + 1;
+    for (int y = writeMinY; y <= writeMaxY; y++) {
+      int rowStart = grid.id(minX, y);
+      System.arraycopy(columnPass, rowStart, input, 0, columns);
+      transformLine(columns);
+
+      for (int x = writeMinX; x <= writeMaxX; x++) {
+        int id = grid.id(x, y);
+        float squared = Math.min(output[x - minX], saturatedSquared);
+        squaredDistance[id] = squared;
+        grid.setBlocked(id, squared <= blockedSquared);
+      }
+    }
+  }
+
+  /**
+   * The one-dimensional squared distance transform of the first n values of input, written to
+   * output. Finds the lower envelope of the parabolas rooted at every sample, then reads it off.
+   */
+  private void transformLine(int n) {
+    int k = 0;
+    parabolas[0] = 0;
+    boundaries[0] = Float.NEGATIVE_INFINITY;
+    boundaries[1] = Float.POSITIVE_INFINITY;
+
+    for (int q = 1; q < n; q++) {
+      float s = intersection(q, parabolas[k]);
+      while (s <= boundaries[k]) {
+        k--;
+        s = intersection(q, parabolas[k]);
+      }
+      k++;
+      parabolas[k] = q;
+      boundaries[k] = s;
+      boundaries[k + 1] = Float.POSITIVE_INFINITY;
+    }
+
+    k = 0;
+    for (int q = 0; q < n; q++) {
+      while (boundaries[k + 1] < q) {
+        k++;
+      }
+      int offset = q - parabolas[k];
+      output[q] = offset * offset + input[parabolas[k]];
+    }
+  }
+
+  // Where the parabola rooted at q overtakes the one rooted at p, with p < q.
+  private float intersection(int q, int p) {
+    return ((input[q] + q * q) - (input[p] + p * p)) / (2 * q - 2 * p);
+  }
+}
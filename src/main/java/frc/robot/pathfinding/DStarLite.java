@@ -0,0 +1,296 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.pathfinding.Convenience.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An incremental planner using D* Lite. The search runs from the goal to the robot and is kept
+ * between plans. When obstacles move, only the cells which changed (and the cells whose cost
+ * depended on them) are searched again, so a replan costs about as much as the change instead of
+ * the whole field. Moving the robot does not throw the search away either.
+ */
+public class DStarLite implements PathPlanner {
+  private static final float INFINITY = Float.POSITIVE_INFINITY;
+
+  /* Costs are sums of hundreds of floats, so a key which should tie with the robot's can come
+   * out a hair above it. Keys this close are still expanded, otherwise the path could run
+   * through a cell whose cost is out of date. Far smaller than the cheapest step. */
+  private static final float KEY_TOLERANCE = 0.01f;
+
+  private final GriddedField field;
+  private final FieldGrid grid;
+
+  // The cost to the goal of each cell as of its last expansion.
+  private final float[] g;
+
+  // The one-step lookahead cost to the goal of each cell.
+  private final float[] rhs;
+
+  // The cells whose g and rhs disagree, keyed on [min(g, rhs) + h + km; min(g, rhs)].
+  private final IndexedMinHeap open;
+
+  // The cells which changed since the last plan.
+  private final ChangedCells changes;
+
+  private int start = -1;
+  private int goal = -1;
+  private int lastStart = -1;
+
+  // How much the heuristic has shrunk because the robot moved. Added to every new key.
+  private float keyModifier = 0;
+
+  private int expansions = 0;
+  private int relaxations = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param field The field on which the algorithm is working on.
+   */
+  public DStarLite(GriddedField field) {
+    this.field = field;
+    grid = field.grid();
+    g = new float[grid.cellCount()];
+    rhs = new float[grid.cellCount()];
+    open = new IndexedMinHeap(grid.cellCount());
+    changes = field.trackChanges(MAX_REPAIRED_CELLS);
+  }
+
+  /**
+   * Finds a path from the robot to the goal. If the goal is the same as last time, the previous
+   * search is repaired with the cells that have changed since then. Otherwise the search starts
+   * over.
+   *
+   * @param startPos The position of the robot.
+   * @param goalPos The goal of the robot.
+   * @return The points of the path, one per grid, or an empty list if there is no path or the
+   *     search ran out of expansions before finishing.
+   */
+  @Override
+  public List<Translation2d> findPath(Translation2d startPos, Translation2d goalPos) {
+    if (field.isBlocked(startPos) || field.isBlocked(goalPos)) {
+      // The search is kept as it is, the next plan can still repair it.
+      return new ArrayList<>();
+    }
+    int newStart = field.coordsToCell(startPos);
+    int newGoal = field.coordsToCell(goalPos);
+    relaxations = 0;
+
+    if (newGoal != goal || changes.overflowed()) {
+      initialize(newStart, newGoal);
+    } else {
+      if (newStart != start) {
+        keyModifier += heuristic(lastStart, newStart);
+        lastStart = newStart;
+        start = newStart;
+      }
+      repair();
+    }
+    changes.clear();
+
+    if (!computeShortestPath()) {
+      // The costs are not settled yet, so following them could lead anywhere. The search carries
+      // on from where it stopped on the next plan.
+      return new ArrayList<>();
+    }
+    return extractPath(startPos);
+  }
+
+  /**
+   * @return The number of cells expanded by the last plan.
+   */
+  @Override
+  public int getExpansions() {
+    return expansions;
+  }
+
+  /**
+   * @return The number of cells whose lookahead cost was recalculated by the last plan, including
+   *     the repair.
+   */
+  @Override
+  public int getRelaxations() {
+    return relaxations;
+  }
+
+  private void initialize(int newStart, int newGoal) {
+    start = newStart;
+    lastStart = newStart;
+    goal = newGoal;
+    keyModifier = 0;
+
+    Arrays.fill(g, INFINITY);
+    Arrays.fill(rhs, INFINITY);
+    open.clear();
+
+    rhs[goal] = 0;
+    open.push(goal, heuristic(start, goal), 0);
+  }
+
+  /** Updates every cell whose edges could have been changed by the changed cells. */
+  private void repair() {
+    for (int i = 0; i < changes.size(); i++) {
+      int cell = changes.get(i);
+      int x = grid.x(cell);
+      int y = grid.y(cell);
+
+      updateVertex(cell);
+      for (Point p : CharliesAstar.intpair) {
+        if (grid.inBounds(x + p.getX(), y + p.getY())) {
+          updateVertex(grid.id(x + p.getX(), y + p.getY()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Expands cells until the robot's cell is consistent and nothing on the heap could lower its
+   * cost. Stops early after MAX_EXPANSIONS cells, and carries on from there on the next plan.
+   *
+   * @return Whether the search finished.
+   */
+  private boolean computeShortestPath() {
+    expansions = 0;
+
+    while (!open.isEmpty()) {
+      float startKey = Math.min(g[start], rhs[start]) + keyModifier;
+      if (open.peekKey() > startKey + KEY_TOLERANCE && rhs[start] <= g[start]) {
+        return true;
+      }
+      if (expansions >= MAX_EXPANSIONS) {
+        return false;
+      }
+      expansions++;
+
+      int u = open.peek();
+      float oldKey = open.peekKey();
+      float oldTieBreak = open.peekTieBreak();
+      float cost = Math.min(g[u], rhs[u]);
+      float newKey = cost + heuristic(start, u) + keyModifier;
+
+      if (lessThan(oldKey, oldTieBreak, newKey, cost)) {
+        // The key is out of date because the robot moved, so it goes back in with the right one.
+        open.push(u, newKey, cost);
+      } else if (g[u] > rhs[u]) {
+        g[u] = rhs[u];
+        open.remove(u);
+        updateNeighbours(u);
+      } else {
+        g[u] = INFINITY;
+        updateVertex(u);
+        updateNeighbours(u);
+      }
+    }
+    return true;
+  }
+
+  private void updateNeighbours(int u) {
+    int x = grid.x(u);
+    int y = grid.y(u);
+    for (int direction = 0; direction < 8; direction++) {
+      if (edgeCost(u, direction) != INFINITY) {
+        Point p = CharliesAstar.intpair[direction];
+        updateVertex(grid.id(x + p.getX(), y + p.getY()));
+      }
+    }
+  }
+
+  /**
+   * Recalculates the lookahead cost of a cell, and puts it on the heap if it is inconsistent.
+   *
+   * @param u A cell id.
+   */
+  private void updateVertex(int u) {
+    relaxations++;
+    if (u != goal) {
+      int x = grid.x(u);
+      int y = grid.y(u);
+      float best = INFINITY;
+      for (int direction = 0; direction < 8; direction++) {
+        float cost = edgeCost(u, direction);
+        if (cost != INFINITY) {
+          Point p = CharliesAstar.intpair[direction];
+          best = Math.min(best, cost + g[grid.id(x + p.getX(), y + p.getY())]);
+        }
+      }
+      rhs[u] = best;
+    }
+
+    if (g[u] != rhs[u]) {
+      float cost = Math.min(g[u], rhs[u]);
+      open.push(u, cost + heuristic(start, u) + keyModifier, cost);
+    } else {
+      open.remove(u);
+    }
+  }
+
+  /**
+   * The cost of moving from a cell to one of its neighbours. The same in both directions.
+   *
+   * @param u A cell id.
+   * @param direction The index of the move in CharliesAstar.intpair.
+   * @return The cost, or infinity if the move is not allowed.
+   */
+  private float edgeCost(int u, int direction) {
+    Point p = CharliesAstar.intpair[direction];
+    if (field.isBlocked(u) || !field.canMove(grid.x(u), grid.y(u), p.getX(), p.getY())) {
+      return INFINITY;
+    }
+    return p.getX() != 0 && p.getY() != 0 ? (float) DIAGONAL_COST : 1;
+  }
+
+  private float heuristic(int from, int to) {
+    return CharliesAstar.octileDistance(grid.x(to) - grid.x(from), grid.y(to) - grid.y(from));
+  }
+
+  private static boolean lessThan(float keyA, float tieA, float keyB, float tieB) {
+    return keyA < keyB || (keyA == keyB && tieA < tieB);
+  }
+
+  /**
+   * Walks downhill from the robot to the goal.
+   *
+   * @param startPos The position of the robot.
+   * @return The points of the path, or an empty list if the robot's cell can not reach the goal.
+   */
+  private List<Translation2d> extractPath(Translation2d startPos) {
+    List<Translation2d> points = new ArrayList<>();
+    // The lookahead cost is what the robot's cell is guaranteed to be correct in once the search
+    // finishes. Its own g may still be out of date.
+    if (rhs[start] == INFINITY) {
+      return points;
+    }
+
+    points.add(startPos);
+    int current = start;
+    // A path can never be longer than the number of cells, so this can not loop forever.
+    for (int steps = 0; current != goal && steps < grid.cellCount(); steps++) {
+      int x = grid.x(current);
+      int y = grid.y(current);
+      int next = -1;
+      float best = INFINITY;
+      for (int direction = 0; direction < 8; direction++) {
+        float cost = edgeCost(current, direction);
+        if (cost != INFINITY) {
+          Point p = CharliesAstar.intpair[direction];
+          int neighbour = grid.id(x + p.getX(), y + p.getY());
+          if (cost + g[neighbour] < best) {
+            best = cost + g[neighbour];
+            next = neighbour;
+          }
+        }
+      }
+      if (next < 0) {
+        return new ArrayList<>();
+      }
+      current = next;
+      points.add(field.cellToTranslation(current));
+    }
+    return current == goal ? points : new ArrayList<>();
+  }
+}
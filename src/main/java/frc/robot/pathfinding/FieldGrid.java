@@ -0,0 +1,375 @@
+package frc.robot.pathfinding;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Packed primitive storage for the gridded field. Every cell is addressed by a single int cell id
+ * ({@code id = y * width + x}), and all per-cell state lives in flat primitive arrays instead of
+ * one object per cell, so cost passes walk contiguous memory.
+ *
+ * <p>Occupancy is kept in two layers. The static layer holds the walls and stationary obstacles,
+ * and is frozen once the field is built. The temporary layer holds the moving obstacles, and
+ * remembers which cells it has touched so it can be cleared without sweeping the whole grid. A
+ * cell is an obstacle if either layer says so.
+ *
+ * <p>Separately from the obstacles themselves, the grid keeps which cells are blocked: too close to
+ * an obstacle for the center of the robot to go. That layer is written by a {@link ClearanceMap}.
+ *
+ * <p>The costs of the cost flood are stamped with the plan which wrote them. A cell stamped by an
+ * older plan reads as never assigned, so resetting the costs between plans does not sweep the
+ * grid. A cell which has never been assigned is {@link #UNASSIGNED}, infinitely far from the goal.
+ */
+public class FieldGrid {
+  /** The cost of a cell the cost flood has not reached. */
+  public static final float UNASSIGNED = Float.POSITIVE_INFINITY;
+
+  private final int width;
+  private final int height;
+  private final int cellCount;
+
+  // One bit per cell, set if the cell is a permanent obstacle.
+  private final long[] obstacled;
+
+  // One bit per cell, set if the cell is covered by a moving obstacle.
+  private final long[] temporary;
+
+  // The cells set in the temporary layer, so clearing it only touches them.
+  private int[] temporaryCells = new int[1024];
+  private int temporaryCount = 0;
+
+  private boolean staticFrozen = false;
+
+  // One bit per cell, set if the robot can not be centered on the cell.
+  private final long[] blocked;
+
+  // The cost assigned to each cell by the cost flood.
+  private final float[] cost;
+
+  // How many times each cell has been assigned a cost.
+  private final byte[] assignedValue;
+
+  /* One bit per direction in CharliesAstar.intpair. A set bit means the cell will not take new
+   * costs from the neighbour in that direction. Replaces the old per-box ignore list. */
+  private final byte[] ignoreMask;
+
+  // The plan which last wrote each cell's cost, assigned value and ignore mask.
+  private final int[] costStamp;
+
+  // The current plan. Stamps start at 0, so the first plan is 1.
+  private int costGeneration = 1;
+
+  // Every set of changed cells which is told when a cell's blocked state flips.
+  private ChangedCells[] listeners = new ChangedCells[0];
+
+  /**
+   * Constructor. Allocates an empty grid.
+   *
+   * @param width The number of cells along the x axis.
+   * @param height The number of cells along the y axis.
+   */
+  public FieldGrid(int width, int height) {
+    this.width = width;
+    this.height = height;
+    cellCount = width * height;
+
+    obstacled = new long[(cellCount + 63) >>> 6];
+    temporary = new long[(cellCount + 63) >>> 6];
+    blocked = new long[(cellCount + 63) >>> 6];
+    cost = new float[cellCount];
+    assignedValue = new byte[cellCount];
+    ignoreMask = new byte[cellCount];
+    costStamp = new int[cellCount];
+  }
+
+  /**
+   * @return The number of cells along the x axis.
+   */
+  public int width() {
+    return width;
+  }
+
+  /**
+   * @return The number of cells along the y axis.
+   */
+  public int height() {
+    return height;
+  }
+
+  /**
+   * @return The total number of cells in the grid.
+   */
+  public int cellCount() {
+    return cellCount;
+  }
+
+  /**
+   * Finds the cell id of a grid coordinate.
+   *
+   * @param x The x value of the cell.
+   * @param y The y value of the cell.
+   * @return The cell id.
+   */
+  public int id(int x, int y) {
+    return y * width + x;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return The x value of the cell.
+   */
+  public int x(int id) {
+    return id % width;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return The y value of the cell.
+   */
+  public int y(int id) {
+    return id / width;
+  }
+
+  /**
+   * @return Whether the grid coordinate lies inside the grid.
+   */
+  public boolean inBounds(int x, int y) {
+    return x >= 0 && y >= 0 && x < width && y < height;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return Whether the cell is considered an obstacle, by either layer.
+   */
+  public boolean isObstacled(int id) {
+    return ((obstacled[id >>> 6] | temporary[id >>> 6]) & (1L << id)) != 0;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return Whether the cell is a permanent obstacle.
+   */
+  public boolean isStaticObstacle(int id) {
+    return (obstacled[id >>> 6] & (1L << id)) != 0;
+  }
+
+  /**
+   * Sets the obstacled state of a cell in the static layer.
+   *
+   * @param id A cell id.
+   * @param value True to make the cell an obstacle, false to clear it.
+   * @throws IllegalStateException If the static layer has already been frozen.
+   */
+  public void setObstacled(int id, boolean value) {
+    if (staticFrozen) {
+      throw new IllegalStateException("The static layer can not change once it is frozen");
+    }
+    if (isStaticObstacle(id) == value) {
+      return;
+    }
+    if (value) {
+      obstacled[id >>> 6] |= 1L << id;
+    } else {
+      obstacled[id >>> 6] &= ~(1L << id);
+    }
+  }
+
+  /**
+   * Stops the static layer from being changed. Called once the walls and stationary obstacles are
+   * in place.
+   */
+  public void freezeStaticLayer() {
+    staticFrozen = true;
+  }
+
+  /**
+   * Copies the static layer out, one bit per cell packed into longs the same way it is stored.
+   *
+   * @param out Where to write the layer. Needs room for (cellCount + 63) / 64 longs.
+   */
+  void writeStaticLayer(LongBuffer out) {
+    out.put(obstacled);
+  }
+
+  /**
+   * Replaces the static layer with one written by {@link #writeStaticLayer(LongBuffer)}.
+   *
+   * @param in Where to read the layer from.
+   * @throws IllegalStateException If the static layer has already been frozen.
+   */
+  void readStaticLayer(LongBuffer in) {
+    if (staticFrozen) {
+      throw new IllegalStateException("The static layer can not change once it is frozen");
+    }
+    in.get(obstacled);
+  }
+
+  /**
+   * @return A hash of the static layer. Anything computed from the static obstacles ahead of time
+   *     stores it, so it can tell when the obstacles have changed since.
+   */
+  public int staticLayerHash() {
+    return Arrays.hashCode(obstacled);
+  }
+
+  /**
+   * Marks a cell as covered by a moving obstacle.
+   *
+   * @param id A cell id.
+   */
+  public void addTemporary(int id) {
+    long bit = 1L << id;
+    if ((temporary[id >>> 6] & bit) != 0) {
+      return;
+    }
+    temporary[id >>> 6] |= bit;
+
+    if (temporaryCount == temporaryCells.length) {
+      temporaryCells = Arrays.copyOf(temporaryCells, temporaryCells.length * 2);
+    }
+    temporaryCells[temporaryCount++] = id;
+  }
+
+  /**
+   * Removes every moving obstacle. Only touches the cells the moving obstacles covered, and leaves
+   * the static layer alone.
+   */
+  public void clearTemporary() {
+    for (int i = 0; i < temporaryCount; i++) {
+      int id = temporaryCells[i];
+      temporary[id >>> 6] &= ~(1L << id);
+    }
+    temporaryCount = 0;
+  }
+
+  /**
+   * @return The number of cells currently covered by moving obstacles.
+   */
+  public int temporaryCount() {
+    return temporaryCount;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return Whether the cell is too close to an obstacle for the robot to be centered on it.
+   */
+  public boolean isBlocked(int id) {
+    return (blocked[id >>> 6] & (1L << id)) != 0;
+  }
+
+  /**
+   * Sets the blocked state of a cell, and tells the listeners if it flipped.
+   *
+   * @param id A cell id.
+   * @param value True if the robot can not be centered on the cell.
+   */
+  void setBlocked(int id, boolean value) {
+    long bit = 1L << id;
+    if (((blocked[id >>> 6] & bit) != 0) == value) {
+      return;
+    }
+    if (value) {
+      blocked[id >>> 6] |= bit;
+    } else {
+      blocked[id >>> 6] &= ~bit;
+    }
+    for (ChangedCells listener : listeners) {
+      listener.add(id);
+    }
+  }
+
+  /**
+   * Registers a set which will record every cell whose blocked state flips from now on.
+   *
+   * @param changes The set to record the changes into.
+   */
+  public void addListener(ChangedCells changes) {
+    ChangedCells[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+    newListeners[listeners.length] = changes;
+    listeners = newListeners;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return The cost of the cell, or UNASSIGNED if the cost flood has not reached it.
+   */
+  public float cost(int id) {
+    return costStamp[id] == costGeneration ? cost[id] : UNASSIGNED;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return How many times the cell has been assigned a cost.
+   */
+  public int assignedValue(int id) {
+    return costStamp[id] == costGeneration ? assignedValue[id] : 0;
+  }
+
+  /**
+   * Sets the cost of a cell, the same way GridBox.setCost always has. A cell which has not been
+   * assigned yet takes the proposed cost, as anything is lower than UNASSIGNED.
+   *
+   * @param id The cell whose cost is being set.
+   * @param direction The index in CharliesAstar.intpair pointing at the cell the proposed cost came
+   *     from. That neighbour is added to the ignore mask. Negative if the cost came from the cell
+   *     itself.
+   * @param proposed The proposed number to be set as the cost.
+   * @param reset If true, the cost will be set to proposed. If false, the cost will be set to the
+   *     minimum of the current cost and the proposed cost.
+   */
+  public void setCost(int id, int direction, float proposed, boolean reset) {
+    if (costStamp[id] != costGeneration) {
+      resetCell(id);
+    }
+    if (direction >= 0) {
+      ignoreMask[id] |= (byte) (1 << direction);
+    }
+    cost[id] = reset ? proposed : Math.min(cost[id], proposed);
+    // Saturates instead of wrapping, the value is only ever compared against MAX_ASSIGNED_VALUE.
+    if (assignedValue[id] < Byte.MAX_VALUE) {
+      assignedValue[id]++;
+    }
+  }
+
+  /**
+   * Finds whether a cell should take a new cost from a neighbour.
+   *
+   * @param id The cell being proposed a cost.
+   * @param direction The index in CharliesAstar.intpair pointing at the neighbour proposing it.
+   * @return Whether or not the cell will take into account its neighbour's cost.
+   */
+  public boolean assignable(int id, int direction) {
+    if (costStamp[id] != costGeneration) {
+      return !isBlocked(id);
+    }
+    return assignedValue[id] <= PathfindingConstants.MAX_ASSIGNED_VALUE
+        && (ignoreMask[id] & (1 << direction)) == 0
+        && !isBlocked(id);
+  }
+
+  /**
+   * Resets the cost, assigned value and ignore mask of a single cell.
+   *
+   * @param id A cell id.
+   */
+  public void resetCell(int id) {
+    cost[id] = UNASSIGNED;
+    assignedValue[id] = 0;
+    ignoreMask[id] = 0;
+    costStamp[id] = costGeneration;
+  }
+
+  /**
+   * Resets the cost, assigned value and ignore mask of every cell. Takes the same time however big
+   * the grid is, as it only moves on to the next plan's stamp.
+   */
+  public void resetCosts() {
+    costGeneration++;
+    if (costGeneration == Integer.MAX_VALUE) {
+      // Once in two billion plans, the stamps start over so an old one is never mistaken for the
+      // current one.
+      Arrays.fill(costStamp, 0);
+      costGeneration = 1;
+    }
+  }
+}
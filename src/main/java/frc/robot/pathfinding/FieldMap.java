@@ -0,0 +1,336 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A field saved ahead of time, so the robot does not have to rasterize the stationary obstacles
+ * and run the distance transform every time it boots. The file is mapped into memory with
+ * FileChannel.map. Loading copies the occupancy and clearance into the grid in bulk, and the goal
+ * distance fields are read straight out of the mapped pages, which are shared with the OS's file
+ * cache.
+ *
+ * <p>The file is little-endian. It starts with a header:
+ *
+ * <pre>
+ * int   magic               "FMAP"
+ * int   version
+ * int   width, height       in cells
+ * int   cell size           GRID_SIDE_LENGTH, in cm
+ * float clearance radius    CLEARANCE_RADIUS, in cm
+ * int   obstacle signature  a hash of the stationary obstacles the map was made from
+ * int   section count
+ * </pre>
+ *
+ * <p>Then, for each section, its type, offset and length in bytes as ints. Sections start on 8 byte
+ * boundaries. OCCUPANCY is the static layer as packed longs and must be there. CLEARANCE is the
+ * squared clearance of every cell, in cells, as floats. Each DISTANCE_FIELD is one goal distance
+ * field: its goal cell, static signature, name length and UTF-8 name padded to 4 bytes, then a
+ * float cost and a byte direction for every cell.
+ */
+public class FieldMap {
+  // The name of the map file in the deploy directory.
+  public static final String FILE_NAME = "field.fmap";
+
+  // "FMAP" in ASCII, read as a little-endian int.
+  private static final int MAGIC = 0x50414D46;
+  private static final int VERSION = 1;
+
+  private static final int HEADER_BYTES = 32;
+  private static final int SECTION_ENTRY_BYTES = 12;
+
+  // The types of section.
+  private static final int OCCUPANCY = 1;
+  private static final int CLEARANCE = 2;
+  private static final int DISTANCE_FIELD = 3;
+
+  private final ByteBuffer buffer;
+
+  private final int width;
+  private final int height;
+  private final int cellSize;
+  private final float clearanceRadius;
+  private final int obstacleSignature;
+
+  private final int[] sectionTypes;
+  private final int[] sectionOffsets;
+  private final int[] sectionLengths;
+
+  /**
+   * Constructor. Reads the header and the section table.
+   *
+   * @param buffer The whole file.
+   * @throws IOException If the buffer does not hold a map this version can read.
+   */
+  private FieldMap(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a field map");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("Unsupported field map version " + version);
+    }
+    width = buffer.getInt(8);
+    height = buffer.getInt(12);
+    cellSize = buffer.getInt(16);
+    clearanceRadius = buffer.getFloat(20);
+    obstacleSignature = buffer.getInt(24);
+
+    int sectionCount = buffer.getInt(28);
+    if (sectionCount < 0 || HEADER_BYTES + sectionCount * SECTION_ENTRY_BYTES > buffer.limit()) {
+      throw new IOException("Field map has a bad section table");
+    }
+    sectionTypes = new int[sectionCount];
+    sectionOffsets = new int[sectionCount];
+    sectionLengths = new int[sectionCount];
+    for (int i = 0; i < sectionCount; i++) {
+      int entry = HEADER_BYTES + i * SECTION_ENTRY_BYTES;
+      sectionTypes[i] = buffer.getInt(entry);
+      sectionOffsets[i] = buffer.getInt(entry + 4);
+      sectionLengths[i] = buffer.getInt(entry + 8);
+      if (sectionOffsets[i] < 0
+          || sectionLengths[i] < 0
+          || sectionOffsets[i] > buffer.limit() - sectionLengths[i]) {
+        throw new IOException("Field map section " + i + " is outside of the file");
+      }
+    }
+    int occupancy = section(OCCUPANCY, 0);
+    if (occupancy < 0) {
+      throw new IOException("Field map has no occupancy");
+    }
+    int cellCount = width * height;
+    int clearance = section(CLEARANCE, 0);
+    if (width <= 0
+        || height <= 0
+        || sectionLengths[occupancy] != ((cellCount + 63) >>> 6) * 8
+        || (clearance >= 0 && sectionLengths[clearance] != cellCount * 4)) {
+      throw new IOException("Field map sections do not match its size");
+    }
+  }
+
+  /**
+   * Maps a map file into memory.
+   *
+   * @param file The map file.
+   * @return The map.
+   * @throws IOException If the file could not be read, or does not hold a map.
+   */
+  public static FieldMap open(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed.
+      return new FieldMap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Maps a map file into memory if there is a readable one.
+   *
+   * @param file The map file.
+   * @return The map, or null if the file is missing or can not be read. The field is then built
+   *     from the obstacles like it would be without a map.
+   */
+  public static FieldMap tryOpen(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      return open(file);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @param grid A grid.
+   * @param stationaryObstacles The stationary obstacles of the field the grid is for.
+   * @return Whether this map was made for the same grid, obstacles and clearance radius.
+   */
+  public boolean matches(FieldGrid grid, List<Obstacle> stationaryObstacles) {
+    return width == grid.width()
+        && height == grid.height()
+        && cellSize == GRID_SIDE_LENGTH
+        && clearanceRadius == (float) CLEARANCE_RADIUS
+        && obstacleSignature == obstacleSignature(stationaryObstacles);
+  }
+
+  /**
+   * Copies the static layer into a grid, and the clearances into its clearance map if the map has
+   * them. Only call this if the map {@link #matches} the grid.
+   *
+   * @param grid The grid to load into. Its static layer must not be frozen yet.
+   * @param clearance The clearance map of the grid.
+   * @return Whether the clearances were loaded. If not, the clearance map has to be rebuilt.
+   */
+  boolean loadInto(FieldGrid grid, ClearanceMap clearance) {
+    grid.readStaticLayer(section(section(OCCUPANCY, 0)).asLongBuffer());
+    int clearanceSection = section(CLEARANCE, 0);
+    if (clearanceSection < 0) {
+      return false;
+    }
+    clearance.read(section(clearanceSection).asFloatBuffer());
+    return true;
+  }
+
+  /**
+   * Finds the goal distance field of a goal. The field reads from the mapped file, nothing is
+   * copied.
+   *
+   * @param name The name of the goal.
+   * @return The field, or null if the map does not have one for the goal.
+   */
+  public GoalDistanceField goalField(String name) {
+    int cellCount = width * height;
+    for (int i = section(DISTANCE_FIELD, 0); i >= 0; i = section(DISTANCE_FIELD, i + 1)) {
+      ByteBuffer section = section(i);
+      int nameLength = section.getInt(8);
+      if (nameLength < 0 || 12 + align(nameLength, 4) + cellCount * 5 > section.limit()) {
+        continue;
+      }
+      byte[] nameBytes = new byte[nameLength];
+      section.get(12, nameBytes);
+      if (!name.equals(new String(nameBytes, StandardCharsets.UTF_8))) {
+        continue;
+      }
+
+      int costStart = 12 + align(nameLength, 4);
+      ByteBuffer cost = section.slice(costStart, cellCount * 4).order(ByteOrder.LITTLE_ENDIAN);
+      ByteBuffer direction = section.slice(costStart + cellCount * 4, cellCount);
+      return new GoalDistanceField(
+          name,
+          width,
+          height,
+          section.getInt(4),
+          section.getInt(0),
+          cost.asFloatBuffer(),
+          direction);
+    }
+    return null;
+  }
+
+  /**
+   * Saves a field to a map file.
+   *
+   * @param file The file to write. Replaced if it already exists.
+   * @param field The field, with no moving obstacles on it.
+   * @param goalFields The goal distance fields to save with it.
+   * @throws IOException If the file could not be written.
+   */
+  public static void write(File file, GriddedField field, List<GoalDistanceField> goalFields)
+      throws IOException {
+    FieldGrid grid = field.grid();
+    int cellCount = grid.cellCount();
+
+    List<Integer> types = new ArrayList<>();
+    List<Integer> lengths = new ArrayList<>();
+    types.add(OCCUPANCY);
+    lengths.add(((cellCount + 63) >>> 6) * 8);
+    types.add(CLEARANCE);
+    lengths.add(cellCount * 4);
+    List<byte[]> names = new ArrayList<>();
+    for (GoalDistanceField goalField : goalFields) {
+      byte[] name = goalField.name().getBytes(StandardCharsets.UTF_8);
+      names.add(name);
+      types.add(DISTANCE_FIELD);
+      lengths.add(12 + align(name.length, 4) + cellCount * 5);
+    }
+
+    int[] offsets = new int[types.size()];
+    int end = align(HEADER_BYTES + types.size() * SECTION_ENTRY_BYTES, 8);
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = end;
+      end = align(end + lengths.get(i), 8);
+    }
+
+    ByteBuffer out = ByteBuffer.allocate(end).order(ByteOrder.LITTLE_ENDIAN);
+    out.putInt(MAGIC)
+        .putInt(VERSION)
+        .putInt(grid.width())
+        .putInt(grid.height())
+        .putInt(GRID_SIDE_LENGTH)
+        .putFloat((float) CLEARANCE_RADIUS)
+        .putInt(obstacleSignature(field.stationaryObstacles))
+        .putInt(types.size());
+    for (int i = 0; i < offsets.length; i++) {
+      out.putInt(types.get(i)).putInt(offsets[i]).putInt(lengths.get(i));
+    }
+
+    grid.writeStaticLayer(sectionOf(out, offsets[0], lengths.get(0)).asLongBuffer());
+    field.clearance().write(sectionOf(out, offsets[1], lengths.get(1)).asFloatBuffer());
+    for (int i = 0; i < goalFields.size(); i++) {
+      GoalDistanceField goalField = goalFields.get(i);
+      byte[] name = names.get(i);
+      ByteBuffer section = sectionOf(out, offsets[i + 2], lengths.get(i + 2));
+      section.putInt(goalField.goal()).putInt(goalField.signature()).putInt(name.length).put(name);
+      section.position(12 + align(name.length, 4));
+      section.asFloatBuffer().put(goalField.costs());
+      section.position(section.position() + cellCount * 4);
+      section.put(goalField.directions());
+    }
+
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Could not create " + parent);
+    }
+    try (FileChannel channel =
+        FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      out.rewind();
+      while (out.hasRemaining()) {
+        channel.write(out);
+      }
+    }
+  }
+
+  /**
+   * A hash of the shapes of some obstacles. The map is only used for a field whose stationary
+   * obstacles have the same signature as the ones it was made from.
+   *
+   * @param obstacles The obstacles.
+   * @return The signature.
+   */
+  static int obstacleSignature(List<Obstacle> obstacles) {
+    int hash = 1;
+    for (Obstacle obstacle : obstacles) {
+      hash = 31 * hash + Arrays.deepHashCode(obstacle.xRings());
+      hash = 31 * hash + Arrays.deepHashCode(obstacle.yRings());
+    }
+    return hash;
+  }
+
+  // The index of the first section of a type at or after an index, or -1 if there is none.
+  private int section(int type, int from) {
+    for (int i = from; i < sectionTypes.length; i++) {
+      if (sectionTypes[i] == type) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // A little-endian view of the bytes of a section.
+  private ByteBuffer section(int index) {
+    return sectionOf(buffer, sectionOffsets[index], sectionLengths[index]);
+  }
+
+  private static ByteBuffer sectionOf(ByteBuffer buffer, int offset, int length) {
+    return buffer.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static int align(int value, int alignment) {
+    return (value + alignment - 1) / alignment * alignment;
+  }
+}
@@ -0,0 +1,27 @@
+package frc.robot.pathfinding;
+
+import frc.robot.Constants.Field;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Builds the field from its obstacles, computes the goal distance fields of every goal in
+ * Constants.Field.goalPoses, and saves them all to a {@link FieldMap} file, so the robot can load
+ * them instead of working them out when it boots. Run by the generateFieldMap Gradle task.
+ */
+public final class FieldMapGenerator {
+  private FieldMapGenerator() {}
+
+  /**
+   * @param args The file to save the map to.
+   * @throws IOException If the map could not be saved.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      throw new IllegalArgumentException("Usage: FieldMapGenerator <output file>");
+    }
+    GriddedField field = new GriddedField();
+    FieldMap.write(
+        new File(args[0]), field, GoalDistanceField.loadAll(null, field, Field.goalPoses));
+  }
+}
@@ -0,0 +1,279 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import java.util.Arrays;
+
+/**
+ * The free space of a field cut into squares of different sizes. The grid is split as a quadtree,
+ * and a square stops being split once all of it is free or all of it is blocked, so open parts of
+ * the field become a few large squares while the edges of the blocked cells stay at the full
+ * resolution of the grid. Only the free squares, the leaves, are kept.
+ *
+ * <p>Each leaf covers whole cells of the grid, so a leaf is exactly as accurate as the cells next
+ * to the obstacles, but an open field has tens of times fewer leaves than cells. The tree is built
+ * again whenever the blocked cells change.
+ */
+public class FieldQuadtree {
+  private final GriddedField field;
+  private final FieldGrid grid;
+  private final ChangedCells changes;
+
+  // The side length of the square the whole grid fits into, a power of two.
+  private final int rootSize;
+
+  // The number of blocked cells in the rectangle from (0, 0) up to but not including (x, y), at
+  // (y * (width + 1) + x).
+  private final int[] blockedBefore;
+
+  // The leaf each cell is in, or -1 if the cell is blocked.
+  private final int[] leafOf;
+
+  // The grid coordinates of the lowest corner of each leaf, and its side length, in cells.
+  private int[] leafX = new int[256];
+  private int[] leafY = new int[256];
+  private int[] leafSize = new int[256];
+  private int leafCount = 0;
+
+  /**
+   * Constructor. Builds the tree from the blocked cells of the field.
+   *
+   * @param field The field whose free space is cut up.
+   */
+  public FieldQuadtree(GriddedField field) {
+    this.field = field;
+    grid = field.grid();
+    // The smallest power of two at least as long as the longest side of the grid.
+    rootSize = Integer.highestOneBit(Math.max(grid.width(), grid.height()) * 2 - 1);
+    blockedBefore = new int[(grid.width() + 1) * (grid.height() + 1)];
+    leafOf = new int[grid.cellCount()];
+    changes = field.trackChanges(1);
+    rebuild();
+  }
+
+  /** Builds the tree again if any cell has changed between blocked and free since it was built. */
+  public void update() {
+    if (changes.size() > 0 || changes.overflowed()) {
+      rebuild();
+    }
+  }
+
+  /** Builds the tree again from the blocked cells of the field. */
+  public void rebuild() {
+    changes.clear();
+    int width = grid.width();
+    int height = grid.height();
+    int stride = width + 1;
+    for (int y = 0; y < height; y++) {
+      int rowSum = 0;
+      for (int x = 0; x < width; x++) {
+        rowSum += field.isBlocked(grid.id(x, y)) ? 1 : 0;
+        blockedBefore[(y + 1) * stride + x + 1] = blockedBefore[y * stride + x + 1] + rowSum;
+      }
+    }
+
+    Arrays.fill(leafOf, -1);
+    leafCount = 0;
+    split(0, 0, rootSize);
+  }
+
+  // Keeps a square as a leaf if it is free, drops it if it is blocked, and splits it otherwise.
+  private void split(int x, int y, int size) {
+    if (x >= grid.width() || y >= grid.height()) {
+      return;
+    }
+    int blocked = blockedIn(x, y, size);
+    if (blocked == size * size) {
+      return;
+    }
+    if (blocked == 0 && size <= QUADTREE_MAX_LEAF_SIZE) {
+      addLeaf(x, y, size);
+      return;
+    }
+    int half = size / 2;
+    split(x, y, half);
+    split(x + half, y, half);
+    split(x, y + half, half);
+    split(x + half, y + half, half);
+  }
+
+  // The number of blocked cells in a square, counting the cells off the grid as blocked.
+  private int blockedIn(int x, int y, int size) {
+    int width = grid.width();
+    int endX = Math.min(x + size, width);
+    int endY = Math.min(y + size, grid.height());
+    int inside =
+        blockedBefore[endY * (width + 1) + endX]
+            - blockedBefore[y * (width + 1) + endX]
+            - blockedBefore[endY * (width + 1) + x]
+            + blockedBefore[y * (width + 1) + x];
+    return inside + size * size - (endX - x) * (endY - y);
+  }
+
+  private void addLeaf(int x, int y, int size) {
+    if (leafCount == leafX.length) {
+      leafX = Arrays.copyOf(leafX, leafCount * 2);
+      leafY = Arrays.copyOf(leafY, leafCount * 2);
+      leafSize = Arrays.copyOf(leafSize, leafCount * 2);
+    }
+    leafX[leafCount] = x;
+    leafY[leafCount] = y;
+    leafSize[leafCount] = size;
+    for (int cellY = y; cellY < y + size; cellY++) {
+      Arrays.fill(leafOf, grid.id(x, cellY), grid.id(x + size, cellY), leafCount);
+    }
+    leafCount++;
+  }
+
+  /**
+   * Finds the leaves next to a leaf, and where the robot crosses from the leaf into each of them.
+   * Leaves which only touch at a corner are included when the two cells beside the corner are
+   * free, the same rule the grid planners use for diagonal moves.
+   *
+   * @param leaf A leaf.
+   * @param neighbours Where the neighbouring leaves are written. Needs room for 4 * size + 4.
+   * @param crossX Where the x value of each crossing point is written, in cells.
+   * @param crossY Where the y value of each crossing point is written, in cells.
+   * @return How many neighbours were found.
+   */
+  public int neighbours(int leaf, int[] neighbours, float[] crossX, float[] crossY) {
+    int x = leafX[leaf];
+    int y = leafY[leaf];
+    int size = leafSize[leaf];
+    int count = 0;
+    // Along the four sides, each neighbour touches the side in one unbroken run of cells.
+    count = side(x + size, y, 0, 1, size, x + size, true, neighbours, crossX, crossY, count);
+    count = side(x - 1, y, 0, 1, size, x, true, neighbours, crossX, crossY, count);
+    count = side(x, y + size, 1, 0, size, y + size, false, neighbours, crossX, crossY, count);
+    count = side(x, y - 1, 1, 0, size, y, false, neighbours, crossX, crossY, count);
+
+    count = corner(x + size, y + size, -1, -1, neighbours, crossX, crossY, count);
+    count = corner(x - 1, y + size, 1, -1, neighbours, crossX, crossY, count);
+    count = corner(x - 1, y - 1, 1, 1, neighbours, crossX, crossY, count);
+    count = corner(x + size, y - 1, -1, 1, neighbours, crossX, crossY, count);
+    return count;
+  }
+
+  /**
+   * Walks the cells just outside one side of a leaf.
+   *
+   * @param startX The x value of the first cell outside the side.
+   * @param startY The y value of the first cell outside the side.
+   * @param stepX The step along the side in x.
+   * @param stepY The step along the side in y.
+   * @param length The length of the side.
+   * @param line Where the side is, in cells. An x value if vertical is true, otherwise a y value.
+   * @param vertical Whether the side runs along the y axis.
+   */
+  private int side(
+      int startX,
+      int startY,
+      int stepX,
+      int stepY,
+      int length,
+      int line,
+      boolean vertical,
+      int[] neighbours,
+      float[] crossX,
+      float[] crossY,
+      int count) {
+    int runLeaf = -1;
+    int runStart = 0;
+    for (int i = 0; i <= length; i++) {
+      int cellX = startX + i * stepX;
+      int cellY = startY + i * stepY;
+      int current = -1;
+      if (i < length && grid.inBounds(cellX, cellY)) {
+        current = leafOf[grid.id(cellX, cellY)];
+      }
+      if (current == runLeaf) {
+        continue;
+      }
+      if (runLeaf >= 0) {
+        // Crossing at the middle of the part of the side the two leaves share.
+        float middle = vertical ? startY + (runStart + i) / 2f : startX + (runStart + i) / 2f;
+        neighbours[count] = runLeaf;
+        crossX[count] = vertical ? line : middle;
+        crossY[count] = vertical ? middle : line;
+        count++;
+      }
+      runLeaf = current;
+      runStart = i;
+    }
+    return count;
+  }
+
+  /**
+   * Checks the cell diagonally outside one corner of a leaf.
+   *
+   * @param cellX The x value of the cell.
+   * @param cellY The y value of the cell.
+   * @param backX The step in x from the cell back toward the leaf.
+   * @param backY The step in y from the cell back toward the leaf.
+   */
+  private int corner(
+      int cellX,
+      int cellY,
+      int backX,
+      int backY,
+      int[] neighbours,
+      float[] crossX,
+      float[] crossY,
+      int count) {
+    if (field.isBlocked(cellX, cellY)
+        || field.isBlocked(cellX + backX, cellY)
+        || field.isBlocked(cellX, cellY + backY)) {
+      return count;
+    }
+    int leaf = leafOf[grid.id(cellX, cellY)];
+    // A leaf covering a cell beside the corner is already a neighbour along that side.
+    if (leaf == leafOf[grid.id(cellX + backX, cellY)]
+        || leaf == leafOf[grid.id(cellX, cellY + backY)]) {
+      return count;
+    }
+    neighbours[count] = leaf;
+    crossX[count] = backX < 0 ? cellX : cellX + 1;
+    crossY[count] = backY < 0 ? cellY : cellY + 1;
+    count++;
+    return count;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return The leaf the cell is in, or -1 if the cell is blocked.
+   */
+  public int leafOf(int id) {
+    return leafOf[id];
+  }
+
+  /**
+   * @return The number of leaves, which are the nodes the planners search.
+   */
+  public int leafCount() {
+    return leafCount;
+  }
+
+  /**
+   * @param leaf A leaf.
+   * @return The x value of the center of the leaf, in cells.
+   */
+  public float centerX(int leaf) {
+    return leafX[leaf] + leafSize[leaf] / 2f;
+  }
+
+  /**
+   * @param leaf A leaf.
+   * @return The y value of the center of the leaf, in cells.
+   */
+  public float centerY(int leaf) {
+    return leafY[leaf] + leafSize[leaf] / 2f;
+  }
+
+  /**
+   * @param leaf A leaf.
+   * @return The side length of the leaf, in cells.
+   */
+  public int size(int leaf) {
+    return leafSize[leaf];
+  }
+}
@@ -0,0 +1,223 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.pathfinding.Convenience.Point;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The cost to go from every cell of the field to one fixed goal, measured around the stationary
+ * obstacles only. The robot drives to the same few scoring, pickup and stage poses over and over,
+ * so these are worked out once, ahead of time, instead of searching from the goal on every plan.
+ *
+ * <p>Each cell also keeps the direction of its first step toward the goal, so following the field
+ * is one lookup per step. Moving obstacles are not in the field. {@link CharliesAstar} checks each
+ * step against the live grid and only searches where a moving obstacle is in the way.
+ *
+ * <p>The fields are generated into the {@link FieldMap} file before deploying.
+ */
+public class GoalDistanceField {
+  // The cost of a cell which can not reach the goal.
+  public static final float UNREACHABLE = Float.POSITIVE_INFINITY;
+
+  private final String name;
+  private final int width;
+  private final int height;
+  private final int signature;
+  private final int goal;
+
+  /* The cost from each cell to the goal, in cells, and the index in CharliesAstar.intpair of the
+   * first step from each cell, or -1 if there is none. When the field comes from a map file these
+   * read straight from the mapped file instead of being copied out of it. */
+  private final FloatBuffer cost;
+  private final ByteBuffer direction;
+
+  /**
+   * Constructor.
+   *
+   * @param name The name of the goal.
+   * @param width The number of cells along the x axis.
+   * @param height The number of cells along the y axis.
+   * @param signature The signature of the stationary obstacles the field was computed around.
+   * @param goal The cell id of the goal.
+   * @param cost The cost from each cell to the goal.
+   * @param direction The first step from each cell toward the goal.
+   */
+  GoalDistanceField(
+      String name,
+      int width,
+      int height,
+      int signature,
+      int goal,
+      FloatBuffer cost,
+      ByteBuffer direction) {
+    this.name = name;
+    this.width = width;
+    this.height = height;
+    this.signature = signature;
+    this.goal = goal;
+    this.cost = cost;
+    this.direction = direction;
+  }
+
+  /**
+   * Computes the field for a goal with a Dijkstra search outward from it over every cell.
+   *
+   * @param name The name of the goal.
+   * @param field The field to compute over. Must not have any moving obstacles on it.
+   * @param goalPos The goal, in cm.
+   * @return The field of the goal.
+   * @throws IllegalStateException If the field has moving obstacles on it.
+   */
+  public static GoalDistanceField compute(String name, GriddedField field, Translation2d goalPos) {
+    FieldGrid grid = field.grid();
+    if (grid.temporaryCount() > 0) {
+      throw new IllegalStateException(
+          "Goal fields are computed around the stationary obstacles, remove the moving ones first");
+    }
+
+    int cellCount = grid.cellCount();
+    int goal = field.coordsToCell(goalPos);
+    float[] cost = new float[cellCount];
+    byte[] direction = new byte[cellCount];
+    Arrays.fill(cost, UNREACHABLE);
+    Arrays.fill(direction, (byte) -1);
+
+    if (!field.isBlocked(goal)) {
+      IndexedMinHeap open = new IndexedMinHeap(cellCount);
+      cost[goal] = 0;
+      open.push(goal, 0, 0);
+      while (!open.isEmpty()) {
+        int current = open.pop();
+        int x = grid.x(current);
+        int y = grid.y(current);
+        for (int d = 0; d < CharliesAstar.intpair.length; d++) {
+          Point p = CharliesAstar.intpair[d];
+          if (!field.canMove(x, y, p.getX(), p.getY())) {
+            continue;
+          }
+          int neighbour = grid.id(x + p.getX(), y + p.getY());
+          // The odd directions are the diagonals.
+          float proposed = cost[current] + (d % 2 == 0 ? 1 : (float) DIAGONAL_COST);
+          if (proposed < cost[neighbour]) {
+            cost[neighbour] = proposed;
+            // The neighbour gets here by stepping back the way the search came.
+            direction[neighbour] = (byte) ((d + 4) % 8);
+            open.push(neighbour, proposed, 0);
+          }
+        }
+      }
+    }
+    return new GoalDistanceField(
+        name,
+        grid.width(),
+        grid.height(),
+        signature(field),
+        goal,
+        FloatBuffer.wrap(cost),
+        ByteBuffer.wrap(direction));
+  }
+
+  /**
+   * Finds the field of every named goal, taking it from a map file where the map has it and it was
+   * made for the same stationary obstacles, and computing it otherwise.
+   *
+   * @param map The map file made ahead of time, or null if there is none.
+   * @param field The field the fields are used on. Must not have any moving obstacles on it.
+   * @param goals The goals, by name, in cm.
+   * @return The field of every goal.
+   */
+  public static List<GoalDistanceField> loadAll(
+      FieldMap map, GriddedField field, Map<String, Pose2d> goals) {
+    List<GoalDistanceField> fields = new ArrayList<>();
+    for (Map.Entry<String, Pose2d> entry : goals.entrySet()) {
+      Translation2d goalPos = entry.getValue().getTranslation();
+      GoalDistanceField loaded = map == null ? null : map.goalField(entry.getKey());
+      if (loaded == null || !loaded.matches(field, goalPos)) {
+        loaded = compute(entry.getKey(), field, goalPos);
+      }
+      fields.add(loaded);
+    }
+    return fields;
+  }
+
+  /**
+   * @param field A field.
+   * @param goalPos A goal, in cm.
+   * @return Whether this was computed for the same grid, stationary obstacles and goal cell.
+   */
+  public boolean matches(GriddedField field, Translation2d goalPos) {
+    FieldGrid grid = field.grid();
+    return width == grid.width()
+        && height == grid.height()
+        && signature == signature(field)
+        && goal == field.coordsToCell(goalPos);
+  }
+
+  // Everything the blocked cells of the stationary obstacles depend on.
+  static int signature(GriddedField field) {
+    return Objects.hash(field.grid().staticLayerHash(), GRID_SIDE_LENGTH, CLEARANCE_RADIUS);
+  }
+
+  /**
+   * @return The name of the goal.
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * @return The cell id of the goal.
+   */
+  public int goal() {
+    return goal;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return The cost from the cell to the goal around the stationary obstacles, or UNREACHABLE.
+   */
+  public float cost(int id) {
+    return cost.get(id);
+  }
+
+  /**
+   * @param id A cell id.
+   * @return The index in CharliesAstar.intpair of the first step from the cell toward the goal, or
+   *     -1 at the goal and at cells which can not reach it.
+   */
+  public int direction(int id) {
+    return direction.get(id);
+  }
+
+  /**
+   * @return The signature of the stationary obstacles the field was computed around.
+   */
+  int signature() {
+    return signature;
+  }
+
+  /**
+   * @return The cost from each cell to the goal, as a view which can be read without moving the
+   *     position of the field's own buffer.
+   */
+  FloatBuffer costs() {
+    return cost.duplicate().rewind();
+  }
+
+  /**
+   * @return The first step from each cell toward the goal, as a view which can be read without
+   *     moving the position of the field's own buffer.
+   */
+  ByteBuffer directions() {
+    return direction.duplicate().rewind();
+  }
+}
@@ -0,0 +1,65 @@
+package frc.robot.pathfinding;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+
+/**
+ * Plans to the goals which have a goal distance field by following the field, and to every other
+ * goal with another planner. The robot drives to the same few goals over and over, and for those
+ * the costs were worked out before deploying, so a plan only has to walk the field and search
+ * around the moving obstacles in the way.
+ */
+public class GoalFieldPlanner implements PathPlanner {
+  private final CharliesAstar fieldFollower;
+  private final PathPlanner fallback;
+
+  // The planner which made the last plan, or null before the first.
+  private PathPlanner lastPlanner;
+
+  /**
+   * Constructor.
+   *
+   * @param field The field on which the algorithm is working on.
+   * @param goalFields The goal distance fields, computed for the same grid and stationary
+   *     obstacles.
+   * @param fallback The planner for goals without a field.
+   */
+  public GoalFieldPlanner(
+      GriddedField field, List<GoalDistanceField> goalFields, PathPlanner fallback) {
+    // The setpoint moves to the robot on every plan.
+    fieldFollower = new CharliesAstar(field, field.box(0, 0));
+    for (GoalDistanceField goalField : goalFields) {
+      fieldFollower.addGoalField(goalField);
+    }
+    this.fallback = fallback;
+  }
+
+  @Override
+  public List<Translation2d> findPath(Translation2d start, Translation2d goal) {
+    lastPlanner = fieldFollower.hasGoalField(goal) ? fieldFollower : fallback;
+    return lastPlanner.findPath(start, goal);
+  }
+
+  /**
+   * @return Whether the last plan followed a goal distance field.
+   */
+  public boolean usedGoalField() {
+    return lastPlanner == fieldFollower;
+  }
+
+  /**
+   * @return The number of nodes expanded by the planner which made the last plan.
+   */
+  @Override
+  public int getExpansions() {
+    return lastPlanner == null ? 0 : lastPlanner.getExpansions();
+  }
+
+  /**
+   * @return The number of relaxations made by the planner which made the last plan.
+   */
+  @Override
+  public int getRelaxations() {
+    return lastPlanner == null ? 0 : lastPlanner.getRelaxations();
+  }
+}
@@ -0,0 +1,165 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.pathfinding.Convenience.Point;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ranks several candidate goals by the cost of driving to each of them, for when any one of them
+ * will do, like any free scoring slot or the nearest game piece.
+ *
+ * <p>All the candidates are costed by one search outward from the robot, instead of one plan per
+ * candidate. The search is an A* whose heuristic is the distance to the nearest candidate, and it
+ * runs until every candidate's cell has been expanded, so every cost is exact. The search sees the
+ * field as it is, moving obstacles included.
+ */
+public class GoalRanker {
+  /**
+   * One candidate goal and what it costs to drive to.
+   *
+   * @param index The position of the goal in the list of candidates.
+   * @param goal The goal.
+   * @param cost The length of the shortest path to the goal, in cm, or UNREACHABLE.
+   */
+  public record RankedGoal(int index, Pose2d goal, double cost) {
+    /**
+     * @return Whether the robot can get to the goal at all.
+     */
+    public boolean reachable() {
+      return cost != UNREACHABLE;
+    }
+  }
+
+  // The cost of a goal the robot can not get to.
+  public static final double UNREACHABLE = Double.POSITIVE_INFINITY;
+
+  // Cheapest first, and in the order they were given when the costs are the same.
+  private static final Comparator<RankedGoal> CHEAPEST_FIRST =
+      Comparator.comparingDouble(RankedGoal::cost).thenComparingInt(RankedGoal::index);
+
+  private final GriddedField field;
+  private final FieldGrid grid;
+  private final SearchState search;
+
+  private int expansions = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param field The field the goals are on.
+   */
+  public GoalRanker(GriddedField field) {
+    this.field = field;
+    grid = field.grid();
+    search = new SearchState(grid.cellCount());
+  }
+
+  /**
+   * Costs every candidate goal with one search from the robot.
+   *
+   * @param startPos The position of the robot, in cm.
+   * @param goals The candidate goals.
+   * @return Every candidate with its cost, cheapest first. Goals the robot can not get to come
+   *     last.
+   */
+  public List<RankedGoal> rank(Translation2d startPos, List<Pose2d> goals) {
+    search.reset();
+    expansions = 0;
+
+    // Goals the robot can not stand on are left out of the search as -1.
+    int[] goalCells = new int[goals.size()];
+    for (int i = 0; i < goalCells.length; i++) {
+      Translation2d goal = goals.get(i).getTranslation();
+      goalCells[i] = field.isBlocked(goal) ? -1 : field.coordsToCell(goal);
+    }
+
+    if (!field.isBlocked(startPos)) {
+      search(field.coordsToCell(startPos), goalCells);
+    }
+
+    List<RankedGoal> ranked = new ArrayList<>(goals.size());
+    for (int i = 0; i < goalCells.length; i++) {
+      int goal = goalCells[i];
+      double cost =
+          goal >= 0 && search.isClosed(goal) ? search.g(goal) * GRID_SIDE_LENGTH : UNREACHABLE;
+      ranked.add(new RankedGoal(i, goals.get(i), cost));
+    }
+    ranked.sort(CHEAPEST_FIRST);
+    return ranked;
+  }
+
+  /**
+   * @return The number of cells expanded by the last ranking.
+   */
+  public int getExpansions() {
+    return expansions;
+  }
+
+  // Expands cells outward from the start until every goal cell has been expanded, or nothing is
+  // left to expand.
+  private void search(int start, int[] goalCells) {
+    int remaining = 0;
+    for (int goal : goalCells) {
+      if (goal >= 0) {
+        remaining++;
+      }
+    }
+
+    IndexedMinHeap open = search.open();
+    search.reach(start, 0, -1);
+    open.push(start, heuristic(start, goalCells), 0);
+
+    while (!open.isEmpty() && remaining > 0) {
+      int current = open.pop();
+      search.close(current);
+      expansions++;
+      // Several candidates can share a cell.
+      for (int goal : goalCells) {
+        if (goal == current) {
+          remaining--;
+        }
+      }
+
+      int x = grid.x(current);
+      int y = grid.y(current);
+      for (int d = 0; d < CharliesAstar.intpair.length; d++) {
+        Point p = CharliesAstar.intpair[d];
+        if (!field.canMove(x, y, p.getX(), p.getY())) {
+          continue;
+        }
+        int neighbour = grid.id(x + p.getX(), y + p.getY());
+        if (search.isClosed(neighbour)) {
+          continue;
+        }
+        // The odd directions are the diagonals.
+        float proposed = search.g(current) + (d % 2 == 0 ? 1 : (float) DIAGONAL_COST);
+        if (proposed < search.g(neighbour)) {
+          search.reach(neighbour, proposed, current);
+          float heuristic = heuristic(neighbour, goalCells);
+          open.push(neighbour, proposed + heuristic, heuristic);
+        }
+      }
+    }
+  }
+
+  /* The octile distance to the nearest goal. Each distance never overestimates and never drops by
+   * more than the step between two cells, and so neither does the smallest of them, so every goal
+   * is expanded with its true cost. */
+  private float heuristic(int cell, int[] goalCells) {
+    int x = grid.x(cell);
+    int y = grid.y(cell);
+    float nearest = Float.POSITIVE_INFINITY;
+    for (int goal : goalCells) {
+      if (goal >= 0) {
+        nearest =
+            Math.min(nearest, CharliesAstar.octileDistance(grid.x(goal) - x, grid.y(goal) - y));
+      }
+    }
+    return nearest;
+  }
+}
@@ -1,58 +1,57 @@
 package frc.robot.pathfinding;
 
 import edu.wpi.first.math.geometry.Translation2d;
-import java.util.List;
 
+/**
+ * A view of one cell of a FieldGrid. A GridBox holds no state of its own, everything is read from
+ * and written to the packed arrays of the grid, so they are cheap to create and throw away.
+ */
 public class GridBox {
-  private boolean obstacled = false;
+  private final FieldGrid grid;
 
-  private int assignedValue = 0;
+  private final int id;
 
-  private double cost = 0;
-
-  private int XValue;
-  private int YValue;
-
-  // List of GridBoxes that this GridBox will not take new costs from.
-  private List<GridBox> ignoreList = List.of();
+  private final int XValue;
+  private final int YValue;
 
   /**
    * Constructor for a GridBox.
    *
+   * @param grid The grid which stores this box's state.
    * @param XValue
    * @param YValue
    */
-  public GridBox(int XValue, int YValue) {
+  public GridBox(FieldGrid grid, int XValue, int YValue) {
+    this.grid = grid;
     this.XValue = XValue;
     this.YValue = YValue;
+    id = grid.id(XValue, YValue);
   }
 
   /**
    * Sets the cost of the GridBox.
    *
-   * @param p the point from which the proposed cost is being taken from.
+   * @param p the point from which the proposed cost is being taken from. Either this box or one
+   *     next to it.
    * @param proposed The proposed number to be set as the cost.
    * @param reset A boolean. If true, the cost will be set to proposed. If false, the cost will be
    *     set to the minimum of the current cost and the proposed cost.
+   * @throws IllegalArgumentException If p is not this box or one next to it.
    */
   public void setCost(GridBox p, double proposed, boolean reset) {
-    ignoreList.add(p);
-    cost = reset ? proposed : Math.min(cost, proposed);
-    assignedValue++;
+    grid.setCost(id, directionTo(p), (float) proposed, reset);
   }
 
   /** Resets the cost, assigned value and ignore list of the GridBox. */
   public void reset() {
-    cost = 0;
-    assignedValue = 0;
-    ignoreList.clear();
+    grid.resetCell(id);
   }
 
   /**
    * @return The cost of the GridBox.
    */
   public double getCost() {
-    return cost;
+    return grid.cost(id);
   }
 
   /**
@@ -60,7 +59,7 @@ public class GridBox {
    * obstacle"
    */
   public void deobstaclize() {
-    obstacled = false;
+    grid.setObstacled(id, false);
   }
 
   /**
@@ -68,14 +67,22 @@ public class GridBox {
    * obstacle"
    */
   public void obstaclize() {
-    obstacled = true;
+    grid.setObstacled(id, true);
   }
 
   /**
-   * @return Whether the GridBox is considered an obstacle or not.
+   * @return Whether the GridBox is considered an obstacle or not. A box too close to an obstacle
+   *     for the robot to fit counts as one.
    */
   public boolean checkObstacled() {
-    return obstacled;
+    return grid.isBlocked(id);
+  }
+
+  /**
+   * @return The cell id of the GridBox in its FieldGrid.
+   */
+  public int getId() {
+    return id;
   }
 
   /**
@@ -119,12 +126,48 @@ public class GridBox {
    * Finds whether or not the grid should have its neighbor's cost considered. This method mainly
    * exists for performance reasons.
    *
-   * @param p The gridbox from which the proposed new cost is coming from.
+   * @param p The gridbox from which the proposed new cost is coming from. Either this box or one
+   *     next to it.
    * @return Whether or not the grid will take into accound its neighbor's cost.
+   * @throws IllegalArgumentException If p is not this box or one next to it.
    */
   public boolean assignable(GridBox p) {
-    return assignedValue <= PathfindingConstants.MAX_ASSIGNED_VALUE
-        && !(ignoreList.contains(p))
-        && !obstacled;
+    return grid.assignable(id, directionTo(p));
+  }
+
+  /**
+   * Two GridBoxes are equal if they view the same cell of the same grid.
+   *
+   * @param o The object to compare to.
+   * @return Whether both boxes refer to the same cell.
+   */
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof GridBox other && other.grid == grid && other.id == id;
+  }
+
+  @Override
+  public int hashCode() {
+    return id;
+  }
+
+  // The direction in CharliesAstar.intpair from this box to p, or -1 if p is this box.
+  private int directionTo(GridBox p) {
+    int dx = p.XValue - XValue;
+    int dy = p.YValue - YValue;
+    if (Math.abs(dx) > 1 || Math.abs(dy) > 1) {
+      // Only neighbours have a direction, and their costs are the only ones that can be taken.
+      throw new IllegalArgumentException(
+          "GridBox ("
+              + p.XValue
+              + ", "
+              + p.YValue
+              + ") is not next to ("
+              + XValue
+              + ", "
+              + YValue
+              + ")");
+    }
+    return CharliesAstar.directionIndex(dx, dy);
   }
 }
@@ -3,12 +3,8 @@ package frc.robot.pathfinding;
 import static frc.robot.pathfinding.PathfindingConstants.*;
 
 import edu.wpi.first.math.geometry.Translation2d;
-import frc.robot.Constants;
 import frc.robot.Constants.Field;
-import java.awt.Shape;
-import java.awt.geom.Rectangle2D;
 import java.util.List;
-import java.util.ListIterator;
 
 public class GriddedField {
   // for ease of access and to make the coe look better
@@ -16,18 +12,25 @@ public class GriddedField {
   public static final int INT_FIELD_LENGTH = (int) Field.FIELD_LENGTH;
   public static final int INT_FIELD_WIDTH = (int) Field.FIELD_WIDTH;
 
-  public static final int LENGTH_GRID_NUMBER = (int) INT_FIELD_LENGTH / GRID_SIDE_LENGTH;
-  public static final int WIDTH_GRID_NUMBER = (int) INT_FIELD_LENGTH / GRID_SIDE_LENGTH;
+  public static final int LENGTH_GRID_NUMBER = INT_FIELD_LENGTH / GRID_SIDE_LENGTH;
+  public static final int WIDTH_GRID_NUMBER = INT_FIELD_WIDTH / GRID_SIDE_LENGTH;
 
   public final List<Obstacle> stationaryObstacles = Field.stationaryObstacles;
 
   public List<Obstacle> movingObstacles;
 
   /* Increasing the grid size to make it GRID_SIDE_LENGTH on each side, because otherwise
-   * it would take up too much processing power and we don't need that level of precision. */
-  private final GridBox[][] baseField = new GridBox[LENGTH_GRID_NUMBER][WIDTH_GRID_NUMBER];
+   * it would take up too much processing power and we don't need that level of precision.
+   * The cells are stored packed in primitive arrays rather than as one GridBox each. */
+  private final FieldGrid grid = new FieldGrid(LENGTH_GRID_NUMBER, WIDTH_GRID_NUMBER);
 
-  private GridBox[][] fullField = baseField;
+  // Reused every time the moving obstacles are refreshed, so refreshing does not allocate.
+  private final ObstacleRasterizer rasterizer =
+      new ObstacleRasterizer(LENGTH_GRID_NUMBER, WIDTH_GRID_NUMBER);
+  private final ObstacleRasterizer.SpanConsumer temporaryWriter = temporaryWriter(grid);
+
+  // How far each cell is from the obstacles. Decides which cells are blocked.
+  private final ClearanceMap clearance = new ClearanceMap(grid);
 
   /**
    * Constructor. Instantiates a Gridded Field.
@@ -36,28 +39,41 @@ public class GriddedField {
    *     2-dimensional obstacles on the field.
    */
   public GriddedField() {
+    this(null);
+  }
+
+  /**
+   * Constructor. Instantiates a Gridded Field, taking the stationary obstacles and the clearances
+   * from a map file made ahead of time instead of working them out, if the map was made from the
+   * same obstacles.
+   *
+   * @param map The map file, or null to work everything out from the obstacles.
+   */
+  public GriddedField(FieldMap map) {
     movingObstacles = List.of();
 
-    for (int x = 0; x < LENGTH_GRID_NUMBER; x++) {
-      for (int y = 0; y < WIDTH_GRID_NUMBER; y++) {
-        baseField[x][y] = new GridBox(x, y);
+    if (map != null && map.matches(grid, stationaryObstacles)) {
+      boolean clearanceLoaded = map.loadInto(grid, clearance);
+      grid.freezeStaticLayer();
+      if (!clearanceLoaded) {
+        clearance.rebuild();
       }
+      return;
     }
 
-    // Turning the walls into obstacles.
-
+    // Turning the walls into obstacles. The clearance map keeps the robot away from them.
     for (int x = 0; x < LENGTH_GRID_NUMBER; x++) {
-      for (int y = 0; y < Constants.ROBOT_RADIUS; y++) {
-        baseField[x / GRID_SIDE_LENGTH][y / GRID_SIDE_LENGTH].obstaclize();
-        baseField[x / GRID_SIDE_LENGTH][LENGTH_GRID_NUMBER - y / GRID_SIDE_LENGTH].obstaclize();
-      }
+      grid.setObstacled(grid.id(x, 0), true);
+      grid.setObstacled(grid.id(x, WIDTH_GRID_NUMBER - 1), true);
     }
-    for (int x = 0; x < WIDTH_GRID_NUMBER; x++) {
-      for (int y = 0; y < Constants.ROBOT_RADIUS; y++) {
-        baseField[x / GRID_SIDE_LENGTH][y / GRID_SIDE_LENGTH].obstaclize();
-        baseField[WIDTH_GRID_NUMBER - x / GRID_SIDE_LENGTH][y / GRID_SIDE_LENGTH].obstaclize();
-      }
+    for (int y = 0; y < WIDTH_GRID_NUMBER; y++) {
+      grid.setObstacled(grid.id(0, y), true);
+      grid.setObstacled(grid.id(LENGTH_GRID_NUMBER - 1, y), true);
     }
+
+    addObstacles(stationaryObstacles, grid, false);
+    grid.freezeStaticLayer();
+    clearance.rebuild();
   }
 
   /**
@@ -69,59 +85,249 @@ public class GriddedField {
    *     updated by clearing the field and re-placing them in their new position every period.
    */
   public void addTempObstacles(List<Obstacle> obstacles) {
+    markDirty(movingObstacles);
+    grid.clearTemporary();
     movingObstacles = obstacles;
-    resetTemps();
-    addObstacles(obstacles, fullField);
+    for (int i = 0; i < obstacles.size(); i++) {
+      rasterizer.rasterize(obstacles.get(i), temporaryWriter);
+    }
+    markDirty(obstacles);
+    clearance.update();
   }
 
   /**
    * A static method which adds temporary obstacles to a field. This method does not remove the
-   * current temporary obstacles on the field.
+   * current temporary obstacles on the field. Only the obstacles are changed, which cells are
+   * blocked is not.
    *
    * @param obstacles A list of Obstacles, representing the temporary obstacles being placed on the
    *     field. These temporary obstacles are best for moving objects, where their position can be
    *     updated by clearing the field and re-placing them in their new position every period.
-   * @param field A GridBox two-dimensional array which represents the field to which the obstacles
-   *     will be added into.
-   */
-  public static void addObstacles(List<Obstacle> obstacles, GridBox[][] field) {
-    ListIterator<Obstacle> iterator = obstacles.listIterator();
-
-    while (iterator.hasNext()) {
-      Shape obstacle = obstacles.get(iterator.nextIndex()).projectedObstacle;
-      Rectangle2D obstacleBoundingBox =
-          obstacles.get(iterator.nextIndex()).projectedObstacle.getBounds2D();
-      int boundingX = (int) obstacleBoundingBox.getX();
-      int boundingY = (int) obstacleBoundingBox.getY();
-      int boundingWidth = (int) obstacleBoundingBox.getWidth();
-      int boundingHeight = (int) obstacleBoundingBox.getHeight();
-
-      for (int x = boundingX; x <= boundingX + boundingWidth; x++) {
-        for (int y = boundingY; y <= boundingY + boundingHeight; y++) {
-          if (obstacle.contains(x, y)) {
-            field[x][y].obstaclize();
-          }
-        }
-      }
+   * @param grid The FieldGrid which represents the field to which the obstacles will be added into.
+   */
+  public static void addObstacles(List<Obstacle> obstacles, FieldGrid grid) {
+    addObstacles(obstacles, grid, true);
+  }
+
+  /**
+   * A static method which adds obstacles to one of the layers of a field.
+   *
+   * @param obstacles A list of Obstacles to be placed on the field.
+   * @param grid The FieldGrid which represents the field to which the obstacles will be added into.
+   * @param temporary If true, the obstacles go into the temporary layer, which is cleared every
+   *     time the moving obstacles are refreshed. If false, they go into the static layer.
+   */
+  public static void addObstacles(List<Obstacle> obstacles, FieldGrid grid, boolean temporary) {
+    ObstacleRasterizer rasterizer = new ObstacleRasterizer(grid.width(), grid.height());
+    ObstacleRasterizer.SpanConsumer writer = temporary ? temporaryWriter(grid) : staticWriter(grid);
+    for (int i = 0; i < obstacles.size(); i++) {
+      rasterizer.rasterize(obstacles.get(i), writer);
+    }
+  }
+
+  // Tells the clearance map which cells some obstacles cover, or used to.
+  private void markDirty(List<Obstacle> obstacles) {
+    for (int i = 0; i < obstacles.size(); i++) {
+      Obstacle obstacle = obstacles.get(i);
+      clearance.markDirty(
+          (int) Math.floor(obstacle.getMinX() / GRID_SIDE_LENGTH),
+          (int) Math.floor(obstacle.getMinY() / GRID_SIDE_LENGTH),
+          (int) Math.floor(obstacle.getMaxX() / GRID_SIDE_LENGTH),
+          (int) Math.floor(obstacle.getMaxY() / GRID_SIDE_LENGTH));
     }
   }
 
+  private static ObstacleRasterizer.SpanConsumer temporaryWriter(FieldGrid grid) {
+    return (y, startX, endX) -> {
+      for (int x = startX; x <= endX; x++) {
+        grid.addTemporary(grid.id(x, y));
+      }
+    };
+  }
+
+  private static ObstacleRasterizer.SpanConsumer staticWriter(FieldGrid grid) {
+    return (y, startX, endX) -> {
+      for (int x = startX; x <= endX; x++) {
+        grid.setObstacled(grid.id(x, y), true);
+      }
+    };
+  }
+
   /**
    * Finds the GridBox at the designated coordinates (a Translation2d).
    *
    * @param p The point at which the GridBox is to be found.
-   * @return The GridBox at those coordinates
+   * @return The GridBox at those coordinates, or the closest one on the edge of the grid if they
+   *     are off of it.
    */
   public GridBox coordsToBox(Translation2d p) {
-    int translatedX = (int) p.getX() / GRID_SIDE_LENGTH;
-    int translatedY = (int) p.getY() / GRID_SIDE_LENGTH;
-    return fullField[translatedX][translatedY];
+    return box(clampedGridX(p), clampedGridY(p));
+  }
+
+  /**
+   * Finds the cell id at the designated coordinates (a Translation2d). Coordinates off of the grid
+   * are moved onto its edge, as a cell id past the edge would wrap around to another row. Use
+   * {@link #isBlocked(Translation2d)} to tell them apart.
+   *
+   * @param p The point at which the cell is to be found.
+   * @return The cell id at those coordinates, or the closest one on the edge of the grid.
+   */
+  public int coordsToCell(Translation2d p) {
+    return grid.id(clampedGridX(p), clampedGridY(p));
+  }
+
+  // The grid coordinates of a point, which are outside of the grid if the point is off of it.
+  private static int gridX(Translation2d p) {
+    return (int) Math.floor(p.getX() / GRID_SIDE_LENGTH);
   }
 
-  /** Removes the temporary obstacles from the field. */
+  private static int gridY(Translation2d p) {
+    return (int) Math.floor(p.getY() / GRID_SIDE_LENGTH);
+  }
+
+  private int clampedGridX(Translation2d p) {
+    return Math.max(0, Math.min(grid.width() - 1, gridX(p)));
+  }
+
+  private int clampedGridY(Translation2d p) {
+    return Math.max(0, Math.min(grid.height() - 1, gridY(p)));
+  }
+
+  /**
+   * Converts a cell id to the Translation2d of the cell, the same way GridBox.boxToTranslation
+   * does.
+   *
+   * @param id The cell id.
+   * @return The Translation2d position of the cell.
+   */
+  public Translation2d cellToTranslation(int id) {
+    return new Translation2d(grid.x(id) * GRID_SIDE_LENGTH, grid.y(id) * GRID_SIDE_LENGTH);
+  }
+
+  /**
+   * Creates a GridBox view of the cell at the grid coordinates.
+   *
+   * @param x The x value of the cell.
+   * @param y The y value of the cell.
+   * @return A GridBox reading and writing that cell.
+   */
+  public GridBox box(int x, int y) {
+    return new GridBox(grid, x, y);
+  }
+
+  /**
+   * Whether a cell can not be driven through, because the robot's clearance there is no more than
+   * CLEARANCE_RADIUS. This is the occupancy test the planners use.
+   *
+   * @param id The cell id.
+   * @return True if the cell is blocked.
+   */
+  public boolean isBlocked(int id) {
+    return grid.isBlocked(id);
+  }
+
+  /**
+   * Whether a grid coordinate can not be driven through. Coordinates outside of the grid are
+   * always blocked.
+   *
+   * @param x The x value of the cell.
+   * @param y The y value of the cell.
+   * @return True if the cell is blocked or outside of the grid.
+   */
+  public boolean isBlocked(int x, int y) {
+    return !grid.inBounds(x, y) || isBlocked(grid.id(x, y));
+  }
+
+  /**
+   * Whether the robot can not be at a point. Points off of the grid are always blocked, so the
+   * planners check their start and goal with this before looking up their cells.
+   *
+   * @param p The point, in cm.
+   * @return True if the cell of the point is blocked or outside of the grid.
+   */
+  public boolean isBlocked(Translation2d p) {
+    return isBlocked(gridX(p), gridY(p));
+  }
+
+  /**
+   * Finds the closest point to p that the robot can be at. The robot's own cell is blocked
+   * whenever an obstacle comes within CLEARANCE_RADIUS of it, and no planner can start from a
+   * blocked cell, so plans start from here instead.
+   *
+   * @param p The point, in cm.
+   * @return p if it is free. Otherwise the closest free cell the robot could get to by backing
+   *     away from the nearest obstacle, or p if there is none.
+   */
+  public Translation2d freePointNear(Translation2d p) {
+    if (!isBlocked(p)) {
+      return p;
+    }
+    int x = clampedGridX(p);
+    int y = clampedGridY(p);
+    /* Backing straight away from the nearest obstacle, the robot is free once it has gone the rest
+     * of the way to CLEARANCE_RADIUS. A cell more covers the rounding of the grid. */
+    double missing = CLEARANCE_RADIUS - clearance.clearance(grid.id(x, y));
+    int reach = (int) Math.ceil(missing / GRID_SIDE_LENGTH) + 1;
+
+    int closest = -1;
+    int closestSquared = Integer.MAX_VALUE;
+    // Ring r holds the cells r steps away along x or y. None are closer than r.
+    for (int r = 1; r <= reach && r * r < closestSquared; r++) {
+      for (int dy = -r; dy <= r; dy++) {
+        // The top and bottom rows of the ring are whole, the rows between only have their ends.
+        int step = dy == -r || dy == r ? 1 : 2 * r;
+        for (int dx = -r; dx <= r; dx += step) {
+          int squared = dx * dx + dy * dy;
+          if (squared < closestSquared && !isBlocked(x + dx, y + dy)) {
+            closest = grid.id(x + dx, y + dy);
+            closestSquared = squared;
+          }
+        }
+      }
+    }
+    return closest < 0 ? p : cellToTranslation(closest);
+  }
+
+  /**
+   * Whether the robot can move from a cell to an adjacent one. Diagonal moves are only allowed
+   * when both cells beside the diagonal are free, so the robot never cuts the corner of an
+   * obstacle.
+   *
+   * @param x The x value of the cell being moved from.
+   * @param y The y value of the cell being moved from.
+   * @param dx The change in x, between -1 and 1.
+   * @param dy The change in y, between -1 and 1.
+   * @return True if the move is allowed.
+   */
+  public boolean canMove(int x, int y, int dx, int dy) {
+    if (isBlocked(x + dx, y + dy)) {
+      return false;
+    }
+    return dx == 0 || dy == 0 || (!isBlocked(x + dx, y) && !isBlocked(x, y + dy));
+  }
+
+  /**
+   * Starts recording which cells change between blocked and free. Used by planners which
+   * repair their previous plan instead of starting over.
+   *
+   * @param capacity The most cells to record before the set overflows.
+   * @return A set which records the changed cells until it is cleared.
+   */
+  public ChangedCells trackChanges(int capacity) {
+    ChangedCells changes = new ChangedCells(grid.cellCount(), capacity);
+    grid.addListener(changes);
+    return changes;
+  }
+
+  /**
+   * Removes the temporary obstacles from the field. Only the cells they covered are touched, the
+   * stationary obstacles are left in place.
+   */
   public void resetTemps() {
-    fullField = baseField;
-    movingObstacles.clear();
+    markDirty(movingObstacles);
+    grid.clearTemporary();
+    movingObstacles = List.of();
+    clearance.update();
   }
 
   /**
@@ -132,9 +338,16 @@ public class GriddedField {
   }
 
   /**
-   * @return The GridBox double array representing the field.
+   * @return How far each cell of the field is from the obstacles.
+   */
+  public ClearanceMap clearance() {
+    return clearance;
+  }
+
+  /**
+   * @return The packed grid representing the field.
    */
-  public GridBox[][] field() {
-    return fullField;
+  public FieldGrid grid() {
+    return grid;
   }
 }
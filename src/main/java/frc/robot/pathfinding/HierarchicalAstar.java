@@ -0,0 +1,536 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.pathfinding.Convenience.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hierarchical planner (HPA*). The grid is cut into square clusters of HPA_CLUSTER_SIZE cells.
+ * Where two clusters share a free stretch of border, an entrance is placed, and the cost of going
+ * between every pair of entrances inside each cluster is worked out ahead of time. A plan first
+ * searches that small graph of entrances, then fills in the grid path only inside the clusters the
+ * route passes through.
+ *
+ * <p>The graph is built once for the field as it is at construction. Afterwards, only the clusters
+ * whose cells changed between blocked and free, plus their neighbours, are rebuilt before the next
+ * plan.
+ */
+public class HierarchicalAstar implements PathPlanner {
+  private static final float INFINITY = Float.POSITIVE_INFINITY;
+
+  private final GriddedField field;
+  private final FieldGrid grid;
+  private final int columns;
+  private final int rows;
+
+  // The cells which changed since the graph was last brought up to date.
+  private final ChangedCells changes;
+
+  /* The entrances on the border to the right of and above each cluster, as pairs of cells: the
+   * cell inside the cluster, then the cell across the border. */
+  private final int[][] rightEntrances;
+  private final int[][] upEntrances;
+
+  // The entrance cells inside each cluster, and the cost between each pair of them.
+  private final int[][] clusterNodes;
+  private final float[][] clusterCosts;
+
+  private final boolean[] dirty;
+  private final int[] dirtyClusters;
+  private int dirtyCount = 0;
+
+  // A search confined to one cluster, indexed by the position of the cell inside the cluster.
+  private final float[] localCost = new float[HPA_CLUSTER_SIZE * HPA_CLUSTER_SIZE];
+  private final int[] localParent = new int[HPA_CLUSTER_SIZE * HPA_CLUSTER_SIZE];
+  private final IndexedMinHeap localOpen = new IndexedMinHeap(HPA_CLUSTER_SIZE * HPA_CLUSTER_SIZE);
+  private int localX;
+  private int localY;
+
+  // The search over entrances, indexed by cell id.
+  private final SearchState search;
+
+  // The cost from the start to each entrance of its cluster, and from each entrance of the goal's
+  // cluster to the goal.
+  private float[] startLinks = new float[16];
+  private float[] goalLinks = new float[16];
+  private int start = -1;
+  private int goal = -1;
+
+  private int expansions = 0;
+
+  /**
+   * Constructor. Builds the graph of entrances for the whole field.
+   *
+   * @param field The field on which the algorithm is working on.
+   */
+  public HierarchicalAstar(GriddedField field) {
+    this.field = field;
+    grid = field.grid();
+    columns = (grid.width() + HPA_CLUSTER_SIZE - 1) / HPA_CLUSTER_SIZE;
+    rows = (grid.height() + HPA_CLUSTER_SIZE - 1) / HPA_CLUSTER_SIZE;
+
+    int clusters = columns * rows;
+    rightEntrances = new int[clusters][];
+    upEntrances = new int[clusters][];
+    clusterNodes = new int[clusters][];
+    clusterCosts = new float[clusters][];
+    dirty = new boolean[clusters];
+    dirtyClusters = new int[clusters];
+    search = new SearchState(grid.cellCount());
+
+    changes = field.trackChanges(MAX_REPAIRED_CELLS);
+    rebuild();
+  }
+
+  /**
+   * Finds a path from the robot to the goal. Clusters which have changed since the last plan are
+   * rebuilt first.
+   *
+   * @param startPos The position of the robot.
+   * @param goalPos The goal of the robot.
+   * @return The points of the path, one per grid, or an empty list if there is no path.
+   */
+  @Override
+  public List<Translation2d> findPath(Translation2d startPos, Translation2d goalPos) {
+    update();
+    expansions = 0;
+
+    start = field.coordsToCell(startPos);
+    goal = field.coordsToCell(goalPos);
+    if (field.isBlocked(startPos) || field.isBlocked(goalPos)) {
+      return new ArrayList<>();
+    }
+
+    List<Integer> route = searchEntrances();
+    if (route.isEmpty()) {
+      return new ArrayList<>();
+    }
+    return refine(startPos, route);
+  }
+
+  /**
+   * @return The number of entrances expanded by the last plan.
+   */
+  @Override
+  public int getExpansions() {
+    return expansions;
+  }
+
+  /** Rebuilds the graph of entrances for the whole field. */
+  public void rebuild() {
+    changes.clear();
+    dirtyCount = 0;
+    Arrays.fill(dirty, false);
+    for (int cluster = 0; cluster < columns * rows; cluster++) {
+      findEntrances(cluster);
+    }
+    for (int cluster = 0; cluster < columns * rows; cluster++) {
+      connectCluster(cluster);
+    }
+  }
+
+  /** Rebuilds the clusters which have changed, or everything if too much has. */
+  private void update() {
+    if (changes.overflowed()) {
+      rebuild();
+      return;
+    }
+    for (int i = 0; i < changes.size(); i++) {
+      int cell = changes.get(i);
+      // A diagonal move can be blocked by the cell beside it, which may be in the next cluster.
+      for (int dx = -1; dx <= 1; dx++) {
+        for (int dy = -1; dy <= 1; dy++) {
+          int x = grid.x(cell) + dx;
+          int y = grid.y(cell) + dy;
+          if (grid.inBounds(x, y)) {
+            markDirty(clusterOf(x, y));
+          }
+        }
+      }
+    }
+    changes.clear();
+    if (dirtyCount == 0) {
+      return;
+    }
+
+    for (int i = 0; i < dirtyCount; i++) {
+      int cluster = dirtyClusters[i];
+      findEntrances(cluster);
+      // The borders on the left and below belong to the neighbours.
+      if (cluster % columns > 0) {
+        findEntrances(cluster - 1);
+      }
+      if (cluster >= columns) {
+        findEntrances(cluster - columns);
+      }
+    }
+
+    // Every cluster sharing a rebuilt border has new entrances to connect.
+    int dirtyBefore = dirtyCount;
+    for (int i = 0; i < dirtyBefore; i++) {
+      int cluster = dirtyClusters[i];
+      int cx = cluster % columns;
+      int cy = cluster / columns;
+      if (cx > 0) {
+        markDirty(cluster - 1);
+      }
+      if (cx < columns - 1) {
+        markDirty(cluster + 1);
+      }
+      if (cy > 0) {
+        markDirty(cluster - columns);
+      }
+      if (cy < rows - 1) {
+        markDirty(cluster + columns);
+      }
+    }
+    for (int i = 0; i < dirtyCount; i++) {
+      connectCluster(dirtyClusters[i]);
+      dirty[dirtyClusters[i]] = false;
+    }
+    dirtyCount = 0;
+  }
+
+  private void markDirty(int cluster) {
+    if (!dirty[cluster]) {
+      dirty[cluster] = true;
+      dirtyClusters[dirtyCount++] = cluster;
+    }
+  }
+
+  private int clusterOf(int x, int y) {
+    return (y / HPA_CLUSTER_SIZE) * columns + x / HPA_CLUSTER_SIZE;
+  }
+
+  private int clusterOf(int cell) {
+    return clusterOf(grid.x(cell), grid.y(cell));
+  }
+
+  /**
+   * Places the entrances on the borders to the right of and above a cluster. Each stretch of
+   * border that is free on both sides gets one entrance in its middle, or one at each end if it is
+   * at least HPA_WIDE_ENTRANCE cells long.
+   */
+  private void findEntrances(int cluster) {
+    int x0 = (cluster % columns) * HPA_CLUSTER_SIZE;
+    int y0 = (cluster / columns) * HPA_CLUSTER_SIZE;
+    int x1 = Math.min(x0 + HPA_CLUSTER_SIZE, grid.width()) - 1;
+    int y1 = Math.min(y0 + HPA_CLUSTER_SIZE, grid.height()) - 1;
+
+    rightEntrances[cluster] =
+        x1 + 1 < grid.width() ? scanBorder(x1, y0, 0, 1, y1 - y0 + 1, 1, 0) : new int[0];
+    upEntrances[cluster] =
+        y1 + 1 < grid.height() ? scanBorder(x0, y1, 1, 0, x1 - x0 + 1, 0, 1) : new int[0];
+  }
+
+  /**
+   * Walks along one border and finds its entrances.
+   *
+   * @param x The x value of the first cell on the inside of the border.
+   * @param y The y value of the first cell on the inside of the border.
+   * @param stepX The step along the border in x.
+   * @param stepY The step along the border in y.
+   * @param length The number of cells along the border.
+   * @param acrossX The step across the border in x.
+   * @param acrossY The step across the border in y.
+   * @return The entrances, as pairs of the inside cell and the cell across the border.
+   */
+  private int[] scanBorder(
+      int x, int y, int stepX, int stepY, int length, int acrossX, int acrossY) {
+    int[] entrances = new int[0];
+    int runStart = -1;
+    for (int i = 0; i <= length; i++) {
+      boolean free =
+          i < length
+              && !field.isBlocked(x + i * stepX, y + i * stepY)
+              && !field.isBlocked(x + i * stepX + acrossX, y + i * stepY + acrossY);
+      if (free && runStart < 0) {
+        runStart = i;
+      } else if (!free && runStart >= 0) {
+        int runEnd = i - 1;
+        int[] picks =
+            runEnd - runStart + 1 >= HPA_WIDE_ENTRANCE
+                ? new int[] {runStart, runEnd}
+                : new int[] {(runStart + runEnd) / 2};
+        for (int pick : picks) {
+          int inside = grid.id(x + pick * stepX, y + pick * stepY);
+          int across = grid.id(x + pick * stepX + acrossX, y + pick * stepY + acrossY);
+          entrances = Arrays.copyOf(entrances, entrances.length + 2);
+          entrances[entrances.length - 2] = inside;
+          entrances[entrances.length - 1] = across;
+        }
+        runStart = -1;
+      }
+    }
+    return entrances;
+  }
+
+  /** Gathers the entrance cells inside a cluster and finds the cost between each pair. */
+  private void connectCluster(int cluster) {
+    int cx = cluster % columns;
+    int cy = cluster / columns;
+    int[] nodes = new int[0];
+    nodes = addSide(nodes, rightEntrances[cluster], 0);
+    nodes = addSide(nodes, upEntrances[cluster], 0);
+    if (cx > 0) {
+      nodes = addSide(nodes, rightEntrances[cluster - 1], 1);
+    }
+    if (cy > 0) {
+      nodes = addSide(nodes, upEntrances[cluster - columns], 1);
+    }
+
+    int n = nodes.length;
+    float[] costs = new float[n * n];
+    for (int i = 0; i < n; i++) {
+      searchCluster(cluster, nodes[i], -1);
+      for (int j = 0; j < n; j++) {
+        costs[i * n + j] = localCost[local(nodes[j])];
+      }
+    }
+    clusterNodes[cluster] = nodes;
+    clusterCosts[cluster] = costs;
+  }
+
+  // Adds one side of each entrance pair to the nodes, skipping cells already there.
+  private static int[] addSide(int[] nodes, int[] entrances, int side) {
+    for (int i = side; i < entrances.length; i += 2) {
+      boolean present = false;
+      for (int node : nodes) {
+        present |= node == entrances[i];
+      }
+      if (!present) {
+        nodes = Arrays.copyOf(nodes, nodes.length + 1);
+        nodes[nodes.length - 1] = entrances[i];
+      }
+    }
+    return nodes;
+  }
+
+  // The position of a cell inside the cluster being searched.
+  private int local(int cell) {
+    return (grid.y(cell) - localY) * HPA_CLUSTER_SIZE + grid.x(cell) - localX;
+  }
+
+  /**
+   * Runs Dijkstra from one cell without leaving its cluster. The costs are left in localCost.
+   *
+   * @param cluster The cluster to search inside.
+   * @param source The cell the search starts from.
+   * @param target The cell to stop at, or -1 to search the whole cluster.
+   */
+  private void searchCluster(int cluster, int source, int target) {
+    localX = (cluster % columns) * HPA_CLUSTER_SIZE;
+    localY = (cluster / columns) * HPA_CLUSTER_SIZE;
+    int maxX = Math.min(localX + HPA_CLUSTER_SIZE, grid.width()) - 1;
+    int maxY = Math.min(localY + HPA_CLUSTER_SIZE, grid.height()) - 1;
+
+    Arrays.fill(localCost, INFINITY);
+    localOpen.clear();
+    localCost[local(source)] = 0;
+    localParent[local(source)] = -1;
+    localOpen.push(local(source), 0, 0);
+
+    while (!localOpen.isEmpty()) {
+      int u = localOpen.pop();
+      int x = localX + u % HPA_CLUSTER_SIZE;
+      int y = localY + u / HPA_CLUSTER_SIZE;
+      if (grid.id(x, y) == target) {
+        return;
+      }
+      for (Point p : CharliesAstar.intpair) {
+        int nx = x + p.getX();
+        int ny = y + p.getY();
+        if (nx < localX || ny < localY || nx > maxX || ny > maxY) {
+          continue;
+        }
+        if (!field.canMove(x, y, p.getX(), p.getY())) {
+          continue;
+        }
+        int v = (ny - localY) * HPA_CLUSTER_SIZE + nx - localX;
+        float proposed = localCost[u] + stepCost(p);
+        if (proposed < localCost[v]) {
+          localCost[v] = proposed;
+          localParent[v] = u;
+          localOpen.push(v, proposed, 0);
+        }
+      }
+    }
+  }
+
+  private static float stepCost(Point p) {
+    return p.getX() != 0 && p.getY() != 0 ? (float) DIAGONAL_COST : 1;
+  }
+
+  /**
+   * Searches the graph of entrances from the start to the goal.
+   *
+   * @return The cells of the route, starting with the start and ending with the goal, or an empty
+   *     list if there is none.
+   */
+  private List<Integer> searchEntrances() {
+    int startCluster = clusterOf(start);
+    int goalCluster = clusterOf(goal);
+
+    // Linking the goal to the entrances of its cluster.
+    int[] goalNodes = clusterNodes[goalCluster];
+    goalLinks = ensureCapacity(goalLinks, goalNodes.length);
+    searchCluster(goalCluster, goal, -1);
+    for (int i = 0; i < goalNodes.length; i++) {
+      goalLinks[i] = localCost[local(goalNodes[i])];
+    }
+
+    // Linking the start to the entrances of its cluster, and to the goal if they share one.
+    int[] startNodes = clusterNodes[startCluster];
+    startLinks = ensureCapacity(startLinks, startNodes.length);
+    searchCluster(startCluster, start, -1);
+    for (int i = 0; i < startNodes.length; i++) {
+      startLinks[i] = localCost[local(startNodes[i])];
+    }
+    float direct = startCluster == goalCluster ? localCost[local(goal)] : INFINITY;
+
+    search.reset();
+    IndexedMinHeap open = search.open();
+    search.reach(start, 0, -1);
+    open.push(start, heuristic(start), heuristic(start));
+
+    while (!open.isEmpty() && expansions < MAX_EXPANSIONS) {
+      int current = open.pop();
+      search.close(current);
+      expansions++;
+
+      if (current == goal) {
+        List<Integer> route = new ArrayList<>();
+        for (int cell = goal; cell >= 0; cell = search.parent(cell)) {
+          route.add(0, cell);
+        }
+        return route;
+      }
+
+      float g = search.g(current);
+      if (current == start) {
+        for (int i = 0; i < startNodes.length; i++) {
+          relax(current, startNodes[i], g + startLinks[i]);
+        }
+        relax(current, goal, g + direct);
+        if (!isNode(current)) {
+          continue;
+        }
+      }
+
+      int cluster = clusterOf(current);
+      int[] nodes = clusterNodes[cluster];
+      float[] costs = clusterCosts[cluster];
+      int index = indexOf(nodes, current);
+      if (index < 0) {
+        continue;
+      }
+      for (int j = 0; j < nodes.length; j++) {
+        if (j != index) {
+          relax(current, nodes[j], g + costs[index * nodes.length + j]);
+        }
+      }
+      if (cluster == goalCluster) {
+        relax(current, goal, g + goalLinks[index]);
+      }
+      relaxAcross(current, g, cluster);
+    }
+    return new ArrayList<>();
+  }
+
+  // Follows the entrances out of a cluster to the cells across the border.
+  private void relaxAcross(int cell, float g, int cluster) {
+    int cx = cluster % columns;
+    int cy = cluster / columns;
+    relaxPairs(cell, g, rightEntrances[cluster], 0);
+    relaxPairs(cell, g, upEntrances[cluster], 0);
+    if (cx > 0) {
+      relaxPairs(cell, g, rightEntrances[cluster - 1], 1);
+    }
+    if (cy > 0) {
+      relaxPairs(cell, g, upEntrances[cluster - columns], 1);
+    }
+  }
+
+  private void relaxPairs(int cell, float g, int[] entrances, int side) {
+    for (int i = side; i < entrances.length; i += 2) {
+      if (entrances[i] == cell) {
+        // Entrances are always straight across a border, so the step costs 1.
+        relax(cell, entrances[i + 1 - 2 * side], g + 1);
+      }
+    }
+  }
+
+  private void relax(int from, int to, float proposed) {
+    if (proposed < search.g(to) && !search.isClosed(to)) {
+      search.reach(to, proposed, from);
+      float heuristic = heuristic(to);
+      search.open().push(to, proposed + heuristic, heuristic);
+    }
+  }
+
+  private boolean isNode(int cell) {
+    return indexOf(clusterNodes[clusterOf(cell)], cell) >= 0;
+  }
+
+  private static int indexOf(int[] nodes, int cell) {
+    for (int i = 0; i < nodes.length; i++) {
+      if (nodes[i] == cell) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static float[] ensureCapacity(float[] array, int size) {
+    return array.length >= size ? array : new float[size * 2];
+  }
+
+  private float heuristic(int cell) {
+    return CharliesAstar.octileDistance(grid.x(goal) - grid.x(cell), grid.y(goal) - grid.y(cell));
+  }
+
+  /**
+   * Fills in the grid path between each pair of cells on the route. Cells in different clusters are
+   * neighbours across a border. Cells in the same cluster are joined with a search inside it.
+   *
+   * @param startPos The position of the robot.
+   * @param route The cells found by the search over entrances.
+   * @return The points of the path, one per grid.
+   */
+  private List<Translation2d> refine(Translation2d startPos, List<Integer> route) {
+    List<Translation2d> points = new ArrayList<>();
+    points.add(startPos);
+    int[] segment = new int[HPA_CLUSTER_SIZE * HPA_CLUSTER_SIZE];
+
+    for (int i = 1; i < route.size(); i++) {
+      int from = route.get(i - 1);
+      int to = route.get(i);
+      int cluster = clusterOf(from);
+      if (cluster != clusterOf(to)) {
+        points.add(field.cellToTranslation(to));
+        continue;
+      }
+
+      searchCluster(cluster, from, to);
+      if (localCost[local(to)] == INFINITY) {
+        return new ArrayList<>();
+      }
+      int length = 0;
+      for (int u = local(to); u >= 0 && u != local(from); u = localParent[u]) {
+        segment[length++] = u;
+      }
+      for (int j = length - 1; j >= 0; j--) {
+        points.add(
+            field.cellToTranslation(
+                grid.id(
+                    localX + segment[j] % HPA_CLUSTER_SIZE,
+                    localY + segment[j] / HPA_CLUSTER_SIZE)));
+      }
+    }
+    return points;
+  }
+}
@@ -0,0 +1,226 @@
+package frc.robot.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int cell ids. Each id can be in the heap at most once, and its position is
+ * tracked so that its key can be changed in O(log n). Keys are compared by a primary key first and
+ * a secondary key second, which the planners use for tie-breaking.
+ */
+public class IndexedMinHeap {
+  private final int[] heap;
+  private final int[] position;
+  private final float[] primary;
+  private final float[] secondary;
+  private int size = 0;
+
+  /**
+   * Constructor. Allocates a heap that can hold every id from 0 to capacity - 1.
+   *
+   * @param capacity The number of ids, usually the cell count of the grid.
+   */
+  public IndexedMinHeap(int capacity) {
+    heap = new int[capacity];
+    position = new int[capacity];
+    primary = new float[capacity];
+    secondary = new float[capacity];
+    Arrays.fill(position, -1);
+  }
+
+  /**
+   * @return The number of ids in the heap.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return Whether the heap is empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes every id from the heap and copies them out, in no particular order. Faster than popping
+   * them one at a time, for when all their keys are about to change.
+   *
+   * @param out Where to copy the ids. Needs room for every id in the heap.
+   * @return How many ids were copied.
+   */
+  public int drainTo(int[] out) {
+    int count = size;
+    System.arraycopy(heap, 0, out, 0, count);
+    clear();
+    return count;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return Whether the id is currently in the heap.
+   */
+  public boolean contains(int id) {
+    return position[id] >= 0;
+  }
+
+  /** Removes every id from the heap. Only touches the ids that are in it. */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      position[heap[i]] = -1;
+    }
+    size = 0;
+  }
+
+  /**
+   * Inserts an id, or changes its key if it is already in the heap. The key may go up or down.
+   *
+   * @param id A cell id.
+   * @param key The primary key.
+   * @param tieBreak The secondary key, compared when the primary keys are equal.
+   */
+  public void push(int id, float key, float tieBreak) {
+    int index = position[id];
+    if (index < 0) {
+      index = size++;
+      heap[index] = id;
+      position[id] = index;
+      primary[id] = key;
+      secondary[id] = tieBreak;
+      siftUp(index);
+      return;
+    }
+
+    boolean decreased = less(key, tieBreak, primary[id], secondary[id]);
+    primary[id] = key;
+    secondary[id] = tieBreak;
+    if (decreased) {
+      siftUp(index);
+    } else {
+      siftDown(index);
+    }
+  }
+
+  /**
+   * Lowers the key of an id which is already in the heap. Does nothing if the new key is not
+   * lower.
+   *
+   * @param id A cell id in the heap.
+   * @param key The new primary key.
+   * @param tieBreak The new secondary key.
+   */
+  public void decreaseKey(int id, float key, float tieBreak) {
+    if (less(key, tieBreak, primary[id], secondary[id])) {
+      primary[id] = key;
+      secondary[id] = tieBreak;
+      siftUp(position[id]);
+    }
+  }
+
+  /**
+   * Removes an id from the heap if it is in it.
+   *
+   * @param id A cell id.
+   */
+  public void remove(int id) {
+    int index = position[id];
+    if (index < 0) {
+      return;
+    }
+    position[id] = -1;
+    size--;
+    if (index != size) {
+      int last = heap[size];
+      heap[index] = last;
+      position[last] = index;
+      siftDown(index);
+      siftUp(position[last]);
+    }
+  }
+
+  /**
+   * @return The id with the lowest key. The heap must not be empty.
+   */
+  public int peek() {
+    return heap[0];
+  }
+
+  /**
+   * @return The primary key of the id with the lowest key.
+   */
+  public float peekKey() {
+    return primary[heap[0]];
+  }
+
+  /**
+   * @return The secondary key of the id with the lowest key.
+   */
+  public float peekTieBreak() {
+    return secondary[heap[0]];
+  }
+
+  /**
+   * @param id A cell id in the heap.
+   * @return The primary key of the id.
+   */
+  public float key(int id) {
+    return primary[id];
+  }
+
+  /**
+   * Removes and returns the id with the lowest key. The heap must not be empty.
+   *
+   * @return The id with the lowest key.
+   */
+  public int pop() {
+    int top = heap[0];
+    remove(top);
+    return top;
+  }
+
+  private static boolean less(float keyA, float tieA, float keyB, float tieB) {
+    return keyA < keyB || (keyA == keyB && tieA < tieB);
+  }
+
+  private boolean less(int indexA, int indexB) {
+    int a = heap[indexA];
+    int b = heap[indexB];
+    return less(primary[a], secondary[a], primary[b], secondary[b]);
+  }
+
+  private void siftUp(int index) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!less(index, parent)) {
+        return;
+      }
+      swap(index, parent);
+      index = parent;
+    }
+  }
+
+  private void siftDown(int index) {
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        return;
+      }
+      if (child + 1 < size && less(child + 1, child)) {
+        child++;
+      }
+      if (!less(child, index)) {
+        return;
+      }
+      swap(index, child);
+      index = child;
+    }
+  }
+
+  private void swap(int indexA, int indexB) {
+    int a = heap[indexA];
+    int b = heap[indexB];
+    heap[indexA] = b;
+    heap[indexB] = a;
+    position[b] = indexA;
+    position[a] = indexB;
+  }
+}
@@ -0,0 +1,147 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Line of sight checks against the blocked cells of a field. A line is walked cell by cell with a
+ * supercover DDA, which visits every cell the line touches, and the walk stops at the first blocked
+ * one. A check costs at most the length of the line in cells, however complex the obstacles are.
+ *
+ * <p>When a line passes exactly through the corner of a cell, both cells beside the corner have to
+ * be free, the same rule the planners use for diagonal moves.
+ */
+public class LineOfSight {
+  private final GriddedField field;
+  private final FieldGrid grid;
+
+  /**
+   * Constructor.
+   *
+   * @param field The field whose blocked cells block sight.
+   */
+  public LineOfSight(GriddedField field) {
+    this.field = field;
+    grid = field.grid();
+  }
+
+  /**
+   * Finds whether the robot could drive in a straight line between two points.
+   *
+   * @param from The first point, in cm.
+   * @param to The second point, in cm.
+   * @return True if no blocked cell touches the line.
+   */
+  public boolean visible(Translation2d from, Translation2d to) {
+    return visible(
+        from.getX() / GRID_SIDE_LENGTH,
+        from.getY() / GRID_SIDE_LENGTH,
+        to.getX() / GRID_SIDE_LENGTH,
+        to.getY() / GRID_SIDE_LENGTH);
+  }
+
+  /**
+   * Finds whether the robot could drive in a straight line between the centers of two cells.
+   *
+   * @param from The first cell id.
+   * @param to The second cell id.
+   * @return True if no blocked cell touches the line.
+   */
+  public boolean visible(int from, int to) {
+    return visible(grid.x(from) + 0.5, grid.y(from) + 0.5, grid.x(to) + 0.5, grid.y(to) + 0.5);
+  }
+
+  /**
+   * Checks many lines between cell centers at once.
+   *
+   * @param from The first cell id of each line.
+   * @param to The second cell id of each line.
+   * @param count How many lines to check, starting from the start of the arrays.
+   * @param results Where the result of each line is written. True if the line is clear.
+   * @return How many of the lines are clear.
+   */
+  public int visible(int[] from, int[] to, int count, boolean[] results) {
+    int clear = 0;
+    for (int i = 0; i < count; i++) {
+      results[i] = visible(from[i], to[i]);
+      if (results[i]) {
+        clear++;
+      }
+    }
+    return clear;
+  }
+
+  /**
+   * Checks the lines from one cell to many others at once.
+   *
+   * @param from The cell id every line starts at.
+   * @param to The cell id each line ends at.
+   * @param count How many lines to check, starting from the start of the array.
+   * @param results Where the result of each line is written. True if the line is clear.
+   * @return How many of the lines are clear.
+   */
+  public int visibleFrom(int from, int[] to, int count, boolean[] results) {
+    int clear = 0;
+    for (int i = 0; i < count; i++) {
+      results[i] = visible(from, to[i]);
+      if (results[i]) {
+        clear++;
+      }
+    }
+    return clear;
+  }
+
+  /**
+   * Walks a line through the grid and stops at the first blocked cell. Coordinates are in cells,
+   * so the cell (x, y) covers [x, x + 1) on the x axis.
+   *
+   * @return True if no blocked cell touches the line.
+   */
+  private boolean visible(double x0, double y0, double x1, double y1) {
+    int x = (int) Math.floor(x0);
+    int y = (int) Math.floor(y0);
+    int endX = (int) Math.floor(x1);
+    int endY = (int) Math.floor(y1);
+    if (field.isBlocked(x, y)) {
+      return false;
+    }
+
+    double dx = x1 - x0;
+    double dy = y1 - y0;
+    int stepX = dx > 0 ? 1 : -1;
+    int stepY = dy > 0 ? 1 : -1;
+
+    // How far along the line the next vertical and horizontal cell boundaries are.
+    double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dx);
+    double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dy);
+    double nextX = dx == 0 ? Double.POSITIVE_INFINITY : (stepX > 0 ? x + 1 - x0 : x0 - x) * deltaX;
+    double nextY = dy == 0 ? Double.POSITIVE_INFINITY : (stepY > 0 ? y + 1 - y0 : y0 - y) * deltaY;
+
+    // Counting the steps left instead of comparing against the end cell, so rounding can never
+    // walk past it forever.
+    for (int steps = Math.abs(endX - x) + Math.abs(endY - y); steps > 0; steps--) {
+      if (nextX < nextY) {
+        nextX += deltaX;
+        x += stepX;
+      } else if (nextY < nextX) {
+        nextY += deltaY;
+        y += stepY;
+      } else {
+        // Through a corner. Both cells beside it are touched.
+        if (field.isBlocked(x + stepX, y) || field.isBlocked(x, y + stepY)) {
+          return false;
+        }
+        nextX += deltaX;
+        nextY += deltaY;
+        x += stepX;
+        y += stepY;
+        steps--;
+      }
+      if (field.isBlocked(x, y)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
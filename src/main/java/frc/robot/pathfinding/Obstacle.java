@@ -2,61 +2,98 @@ package frc.robot.pathfinding;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import frc.robot.Constants;
-import java.awt.Polygon;
 import java.awt.geom.*;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ListIterator;
 
 public class Obstacle {
-  java.awt.Shape obstacle;
+  // How many corners the polygon approximating an ellipse has.
+  private static final int ELLIPSE_SEGMENTS = 32;
 
-  Rectangle2D boundingBox = obstacle.getBounds2D();
+  // How far a curve may stray from its flattened polygon when an arbitrary Shape is converted.
+  private static final double FLATNESS = 0.5;
 
-  // The area in which the CENTER of the robot should not go, lest the EDGE of the robot will touch
-  // the EDGE of the obstacle.
-  public java.awt.Shape projectedObstacle =
-      AffineTransform.getScaleInstance(
-              // Finding which scale factor is needed in order to increase both opposite sides by
-              // the robot radius (im a genius)
-              (1 + Constants.ROBOT_RADIUS * 2 / boundingBox.getHeight()),
-              (1 + Constants.ROBOT_RADIUS * 2 / boundingBox.getWidth()))
-          .createTransformedShape(obstacle);
+  /* The outline of the obstacle as polygons, in the same units as the field. Most obstacles have a
+   * single ring. A point is inside the obstacle if it is inside an odd number of rings. */
+  private final double[][] xRings;
+  private final double[][] yRings;
 
-  // Scaling the obstacle to this factor. Increases all sides by the robot radius.
+  private final double minX;
+  private final double minY;
+  private final double maxX;
+  private final double maxY;
+
+  // Only built if something asks for an AWT shape. Planning never does, the robot's size is
+  // accounted for by the ClearanceMap instead.
+  private java.awt.Shape obstacle;
+  private java.awt.Shape projectedObstacle;
 
   /**
    * Obstacle constructor. If you want to make it easier for yourself, just use one of the other
    * static "constructor"
    *
-   * @param obstacle An already-created Shape to turn into an Obstacle.
+   * @param obstacle An already-created Shape to turn into an Obstacle. Curves are flattened into
+   *     polygons.
    */
   public Obstacle(java.awt.Shape obstacle) {
+    this(flattenX(obstacle), flattenY(obstacle));
     this.obstacle = obstacle;
   }
 
+  /**
+   * Instantiates an obstacle from the corners of a polygon.
+   *
+   * @param xPoints The x values of the corners, in order.
+   * @param yPoints The y values of the corners, in order.
+   */
+  public Obstacle(double[] xPoints, double[] yPoints) {
+    this(new double[][] {xPoints}, new double[][] {yPoints});
+  }
+
+  private Obstacle(double[][] xRings, double[][] yRings) {
+    this.xRings = xRings;
+    this.yRings = yRings;
+
+    double lowX = Double.POSITIVE_INFINITY;
+    double lowY = Double.POSITIVE_INFINITY;
+    double highX = Double.NEGATIVE_INFINITY;
+    double highY = Double.NEGATIVE_INFINITY;
+    for (int ring = 0; ring < xRings.length; ring++) {
+      for (int i = 0; i < xRings[ring].length; i++) {
+        lowX = Math.min(lowX, xRings[ring][i]);
+        lowY = Math.min(lowY, yRings[ring][i]);
+        highX = Math.max(highX, xRings[ring][i]);
+        highY = Math.max(highY, yRings[ring][i]);
+      }
+    }
+    minX = lowX;
+    minY = lowY;
+    maxX = highX;
+    maxY = highY;
+  }
+
   /**
    * Instantiates a new obstacle in the shape of a polygon.
    *
    * @param points A Translation2d list representing the positions in 2D space of which connect to
    *     make up the polygon in question.
-   * @return An obstacle in the shape of a polygon. Its coordinates are all converted to integers,
-   *     so make sure that a small distance measurement is used (centimeters or inches).
+   * @return An obstacle in the shape of a polygon.
    */
   public static Obstacle polygonObstacle(List<Translation2d> points) {
-    int[] xPoints = new int[points.size()];
-    int[] yPoints = new int[points.size()];
+    double[] xPoints = new double[points.size()];
+    double[] yPoints = new double[points.size()];
 
     ListIterator<Translation2d> iterator = points.listIterator();
 
     while (iterator.hasNext()) {
-      xPoints[iterator.nextIndex()] = (int) points.get(iterator.nextIndex()).getX();
-      yPoints[iterator.nextIndex()] = (int) points.get(iterator.nextIndex()).getY();
+      xPoints[iterator.nextIndex()] = points.get(iterator.nextIndex()).getX();
+      yPoints[iterator.nextIndex()] = points.get(iterator.nextIndex()).getY();
 
       iterator.next();
     }
 
-    return new Obstacle(new Polygon(xPoints, yPoints, 3));
+    return new Obstacle(xPoints, yPoints);
   }
 
   /**
@@ -69,10 +106,7 @@ public class Obstacle {
    * @return An obstacle in the shape of a circle.
    */
   public static Obstacle ellipticalObstacle(Translation2d position, double height, double width) {
-    return new Obstacle(
-        new Ellipse2D.Double(
-            // Finding the coordinates at the top left corner of the frame rectangle
-            position.getX() - width / 2, position.getY() + height / 2, height, width));
+    return ellipticalObstacle(position.getX(), position.getY(), 0, height, width);
   }
 
   /**
@@ -84,15 +118,8 @@ public class Obstacle {
    * @return An obstacle in the shape of an ellipse, rotated about its center.
    */
   public static Obstacle ellipticalObstacle(Pose2d position, double height, double width) {
-    return new Obstacle(
-        AffineTransform.getRotateInstance(
-                // Getting the rotation transformation
-                position.getRotation().getRadians(), position.getX(), position.getY())
-            .createTransformedShape(
-                // Creating the ellipse
-                new Ellipse2D.Double(
-                    // Finding the coordinates at the top left corner of the frame rectangle
-                    position.getX() - width / 2, position.getY() + height / 2, height, width)));
+    return ellipticalObstacle(
+        position.getX(), position.getY(), position.getRotation().getRadians(), height, width);
   }
 
   /**
@@ -105,10 +132,7 @@ public class Obstacle {
    * @return An obstacle in the shape of a rectangle, rotated about its center.
    */
   public static Obstacle rectangularObstacle(Translation2d position, double height, double width) {
-    return new Obstacle(
-        new Rectangle2D.Double(
-            // Finding the coordinates at the top left corner of the rectangle
-            position.getX() - width / 2, position.getY() + height / 2, height, width));
+    return rectangularObstacle(position.getX(), position.getY(), 0, height, width);
   }
 
   /**
@@ -120,15 +144,8 @@ public class Obstacle {
    * @return An obstacle in the shape of a circle.
    */
   public static Obstacle rectangularObstacle(Pose2d position, double height, double width) {
-    return new Obstacle(
-        AffineTransform.getRotateInstance(
-                // Getting the rotation transformation
-                position.getRotation().getRadians(), position.getX(), position.getY())
-            .createTransformedShape(
-                // Creating the rectangle
-                new Rectangle2D.Double(
-                    // Finding the coordinates at the top left corner
-                    position.getX() - width / 2, position.getY() + height / 2, height, width)));
+    return rectangularObstacle(
+        position.getX(), position.getY(), position.getRotation().getRadians(), height, width);
   }
 
   /**
@@ -139,7 +156,146 @@ public class Obstacle {
    * @return An obstacle in the shape of a circle.
    */
   public static Obstacle circularObstacle(Translation2d position, double radius) {
-    return ellipticalObstacle(position, radius, radius);
+    return ellipticalObstacle(position, radius * 2, radius * 2);
+  }
+
+  private static Obstacle rectangularObstacle(
+      double centerX, double centerY, double radians, double height, double width) {
+    double[] xPoints = {-width / 2, width / 2, width / 2, -width / 2};
+    double[] yPoints = {-height / 2, -height / 2, height / 2, height / 2};
+    rotateAndMove(xPoints, yPoints, centerX, centerY, radians);
+    return new Obstacle(xPoints, yPoints);
+  }
+
+  private static Obstacle ellipticalObstacle(
+      double centerX, double centerY, double radians, double height, double width) {
+    double[] xPoints = new double[ELLIPSE_SEGMENTS];
+    double[] yPoints = new double[ELLIPSE_SEGMENTS];
+    for (int i = 0; i < ELLIPSE_SEGMENTS; i++) {
+      double angle = 2 * Math.PI * i / ELLIPSE_SEGMENTS;
+      xPoints[i] = Math.cos(angle) * width / 2;
+      yPoints[i] = Math.sin(angle) * height / 2;
+    }
+    rotateAndMove(xPoints, yPoints, centerX, centerY, radians);
+    return new Obstacle(xPoints, yPoints);
+  }
+
+  // Rotates points about the origin, then moves the origin to the center.
+  private static void rotateAndMove(
+      double[] xPoints, double[] yPoints, double centerX, double centerY, double radians) {
+    double cos = Math.cos(radians);
+    double sin = Math.sin(radians);
+    for (int i = 0; i < xPoints.length; i++) {
+      double x = xPoints[i];
+      double y = yPoints[i];
+      xPoints[i] = centerX + x * cos - y * sin;
+      yPoints[i] = centerY + x * sin + y * cos;
+    }
+  }
+
+  private static double[][] flattenX(java.awt.Shape shape) {
+    return flatten(shape, 0);
+  }
+
+  private static double[][] flattenY(java.awt.Shape shape) {
+    return flatten(shape, 1);
+  }
+
+  /**
+   * Converts a Shape into polygon rings, one per subpath.
+   *
+   * @param shape The shape.
+   * @param axis 0 for the x values, 1 for the y values.
+   * @return The values of every corner along that axis, one array per ring.
+   */
+  private static double[][] flatten(java.awt.Shape shape, int axis) {
+    double[][] rings = new double[0][];
+    double[] ring = new double[0];
+    double[] coords = new double[6];
+
+    for (PathIterator iterator = shape.getPathIterator(null, FLATNESS);
+        !iterator.isDone();
+        iterator.next()) {
+      int segmentType = iterator.currentSegment(coords);
+      if (segmentType == PathIterator.SEG_MOVETO && ring.length > 0) {
+        rings = Arrays.copyOf(rings, rings.length + 1);
+        rings[rings.length - 1] = ring;
+        ring = new double[0];
+      }
+      if (segmentType != PathIterator.SEG_CLOSE) {
+        ring = Arrays.copyOf(ring, ring.length + 1);
+        ring[ring.length - 1] = coords[axis];
+      }
+    }
+    if (ring.length > 0) {
+      rings = Arrays.copyOf(rings, rings.length + 1);
+      rings[rings.length - 1] = ring;
+    }
+    return rings;
+  }
+
+  private static java.awt.Shape toShape(double[][] xRings, double[][] yRings) {
+    Path2D.Double path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+    for (int ring = 0; ring < xRings.length; ring++) {
+      path.moveTo(xRings[ring][0], yRings[ring][0]);
+      for (int i = 1; i < xRings[ring].length; i++) {
+        path.lineTo(xRings[ring][i], yRings[ring][i]);
+      }
+      path.closePath();
+    }
+    return path;
+  }
+
+  /**
+   * @return The x values of the corners of each ring of the obstacle.
+   */
+  double[][] xRings() {
+    return xRings;
+  }
+
+  /**
+   * @return The y values of the corners of each ring of the obstacle.
+   */
+  double[][] yRings() {
+    return yRings;
+  }
+
+  /**
+   * @return The lowest x value of the obstacle.
+   */
+  public double getMinX() {
+    return minX;
+  }
+
+  /**
+   * @return The lowest y value of the obstacle.
+   */
+  public double getMinY() {
+    return minY;
+  }
+
+  /**
+   * @return The highest x value of the obstacle.
+   */
+  public double getMaxX() {
+    return maxX;
+  }
+
+  /**
+   * @return The highest y value of the obstacle.
+   */
+  public double getMaxY() {
+    return maxY;
+  }
+
+  /**
+   * @return The obstacle as an AWT shape.
+   */
+  public java.awt.Shape shape() {
+    if (obstacle == null) {
+      obstacle = toShape(xRings, yRings);
+    }
+    return obstacle;
   }
 
   /**
@@ -147,6 +303,26 @@ public class Obstacle {
    *     obstacle.
    */
   public java.awt.Shape obstacleProjection() {
+    if (projectedObstacle == null) {
+      // Scaling the obstacle about its center. Increases all sides by the clearance radius.
+      double centerX = (minX + maxX) / 2;
+      double centerY = (minY + maxY) / 2;
+      double radius = PathfindingConstants.CLEARANCE_RADIUS;
+      double scaleX = maxX > minX ? 1 + radius * 2 / (maxX - minX) : 1;
+      double scaleY = maxY > minY ? 1 + radius * 2 / (maxY - minY) : 1;
+
+      double[][] projectedXRings = new double[xRings.length][];
+      double[][] projectedYRings = new double[yRings.length][];
+      for (int ring = 0; ring < xRings.length; ring++) {
+        projectedXRings[ring] = new double[xRings[ring].length];
+        projectedYRings[ring] = new double[yRings[ring].length];
+        for (int i = 0; i < xRings[ring].length; i++) {
+          projectedXRings[ring][i] = centerX + (xRings[ring][i] - centerX) * scaleX;
+          projectedYRings[ring][i] = centerY + (yRings[ring][i] - centerY) * scaleY;
+        }
+      }
+      projectedObstacle = toShape(projectedXRings, projectedYRings);
+    }
     return projectedObstacle;
   }
 }
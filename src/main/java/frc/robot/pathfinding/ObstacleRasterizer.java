@@ -0,0 +1,185 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import java.util.Arrays;
+
+/**
+ * Converts obstacles into runs of grid cells. Each row of the grid is filled with a scanline pass
+ * over the obstacle's polygon edges, sampled at the cell centers, and then the outline itself is
+ * traced so that any cell an edge passes through is covered as well. The work is proportional to
+ * the number of covered cells, and no AWT code is involved.
+ *
+ * <p>The edge table is kept between calls, so rasterizing does not allocate once it has grown to
+ * fit the largest obstacle.
+ */
+public class ObstacleRasterizer {
+  /** Receives the cells covered by an obstacle. */
+  public interface SpanConsumer {
+    /**
+     * Called for each horizontal run of covered cells. The same cell may be given more than once.
+     *
+     * @param y The y value of the row.
+     * @param startX The x value of the first covered cell.
+     * @param endX The x value of the last covered cell, inclusive.
+     */
+    void span(int y, int startX, int endX);
+  }
+
+  private final int width;
+  private final int height;
+
+  // The edges of the polygon in grid units, with y0 <= y1.
+  private double[] edgeX0 = new double[64];
+  private double[] edgeY0 = new double[64];
+  private double[] edgeX1 = new double[64];
+  private double[] edgeY1 = new double[64];
+  private int edgeCount = 0;
+
+  // Where the current scanline crosses the edges.
+  private double[] crossings = new double[64];
+
+  /**
+   * Constructor.
+   *
+   * @param width The number of cells along the x axis of the grid.
+   * @param height The number of cells along the y axis of the grid.
+   */
+  public ObstacleRasterizer(int width, int height) {
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Finds every cell covered by an obstacle. Cells outside of the grid are left out.
+   *
+   * @param obstacle The obstacle.
+   * @param consumer Receives the covered cells.
+   */
+  public void rasterize(Obstacle obstacle, SpanConsumer consumer) {
+    double[][] xRings = obstacle.xRings();
+    double[][] yRings = obstacle.yRings();
+
+    edgeCount = 0;
+    for (int ring = 0; ring < xRings.length; ring++) {
+      int corners = xRings[ring].length;
+      for (int i = 0; i < corners; i++) {
+        int next = i + 1 == corners ? 0 : i + 1;
+        addEdge(
+            xRings[ring][i] / GRID_SIDE_LENGTH,
+            yRings[ring][i] / GRID_SIDE_LENGTH,
+            xRings[ring][next] / GRID_SIDE_LENGTH,
+            yRings[ring][next] / GRID_SIDE_LENGTH);
+      }
+    }
+    if (edgeCount == 0) {
+      return;
+    }
+
+    fillInterior(obstacle, consumer);
+    for (int i = 0; i < edgeCount; i++) {
+      traceEdge(edgeX0[i], edgeY0[i], edgeX1[i], edgeY1[i], consumer);
+    }
+  }
+
+  private void addEdge(double x0, double y0, double x1, double y1) {
+    if (edgeCount == edgeX0.length) {
+      int size = edgeCount * 2;
+      edgeX0 = Arrays.copyOf(edgeX0, size);
+      edgeY0 = Arrays.copyOf(edgeY0, size);
+      edgeX1 = Arrays.copyOf(edgeX1, size);
+      edgeY1 = Arrays.copyOf(edgeY1, size);
+      crossings = Arrays.copyOf(crossings, size);
+    }
+    if (y0 > y1) {
+      edgeX0[edgeCount] = x1;
+      edgeY0[edgeCount] = y1;
+      edgeX1[edgeCount] = x0;
+      edgeY1[edgeCount] = y0;
+    } else {
+      edgeX0[edgeCount] = x0;
+      edgeY0[edgeCount] = y0;
+      edgeX1[edgeCount] = x1;
+      edgeY1[edgeCount] = y1;
+    }
+    edgeCount++;
+  }
+
+  /**
+   * Fills the cells whose centers are inside the polygon, one row at a time, using the even-odd
+   * rule.
+   */
+  private void fillInterior(Obstacle obstacle, SpanConsumer consumer) {
+    int firstRow = Math.max(0, (int) Math.floor(obstacle.getMinY() / GRID_SIDE_LENGTH));
+    int lastRow = Math.min(height - 1, (int) Math.floor(obstacle.getMaxY() / GRID_SIDE_LENGTH));
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      double scanY = row + 0.5;
+
+      // Each edge counts if the scanline is in [y0, y1), so shared corners are only counted once.
+      int count = 0;
+      for (int i = 0; i < edgeCount; i++) {
+        if (edgeY0[i] <= scanY && scanY < edgeY1[i]) {
+          double t = (scanY - edgeY0[i]) / (edgeY1[i] - edgeY0[i]);
+          crossings[count++] = edgeX0[i] + t * (edgeX1[i] - edgeX0[i]);
+        }
+      }
+      sortCrossings(count);
+
+      for (int i = 0; i + 1 < count; i += 2) {
+        // The cells whose centers lie in [left, right).
+        int startX = Math.max(0, (int) Math.ceil(crossings[i] - 0.5));
+        int endX = Math.min(width - 1, (int) Math.ceil(crossings[i + 1] - 0.5) - 1);
+        if (startX <= endX) {
+          consumer.span(row, startX, endX);
+        }
+      }
+    }
+  }
+
+  // Insertion sort. There are only ever a handful of crossings per row.
+  private void sortCrossings(int count) {
+    for (int i = 1; i < count; i++) {
+      double value = crossings[i];
+      int j = i - 1;
+      while (j >= 0 && crossings[j] > value) {
+        crossings[j + 1] = crossings[j];
+        j--;
+      }
+      crossings[j + 1] = value;
+    }
+  }
+
+  /** Covers every cell an edge passes through, by stepping from cell boundary to cell boundary. */
+  private void traceEdge(double x0, double y0, double x1, double y1, SpanConsumer consumer) {
+    int x = (int) Math.floor(x0);
+    int y = (int) Math.floor(y0);
+    int endX = (int) Math.floor(x1);
+    int endY = (int) Math.floor(y1);
+
+    double dx = x1 - x0;
+    double dy = y1 - y0;
+    int stepX = dx > 0 ? 1 : -1;
+    int stepY = dy > 0 ? 1 : -1;
+
+    // How far along the edge the next vertical and horizontal cell boundaries are.
+    double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dx);
+    double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dy);
+    double nextX = dx == 0 ? Double.POSITIVE_INFINITY : (stepX > 0 ? x + 1 - x0 : x0 - x) * deltaX;
+    double nextY = dy == 0 ? Double.POSITIVE_INFINITY : (stepY > 0 ? y + 1 - y0 : y0 - y) * deltaY;
+
+    int steps = Math.abs(endX - x) + Math.abs(endY - y);
+    for (int i = 0; i <= steps; i++) {
+      if (x >= 0 && y >= 0 && x < width && y < height) {
+        consumer.span(y, x, x);
+      }
+      if (nextX < nextY) {
+        nextX += deltaX;
+        x += stepX;
+      } else {
+        nextY += deltaY;
+        y += stepY;
+      }
+    }
+  }
+}
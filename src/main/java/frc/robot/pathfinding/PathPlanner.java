@@ -0,0 +1,57 @@
+package frc.robot.pathfinding;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Something which can find a path across a GriddedField. */
+public interface PathPlanner {
+  /**
+   * Finds a path which avoids all obstacles on the field.
+   *
+   * @param start The position of the robot, in the same units as the field.
+   * @param goal The goal of the robot.
+   * @return The points of the path, starting at start and ending at the goal. Empty if no path was
+   *     found.
+   */
+  List<Translation2d> findPath(Translation2d start, Translation2d goal);
+
+  /**
+   * Finds a path the way findPath does, even when the robot's own cell is blocked because an
+   * obstacle has come too close. The plan starts from the closest point the robot can be at, and
+   * the robot drives there first.
+   *
+   * @param field The field the planner plans on.
+   * @param start The position of the robot.
+   * @param goal The goal of the robot.
+   * @return The points of the path, starting at start and ending at the goal. Empty if no path was
+   *     found.
+   */
+  default List<Translation2d> findPathFromFreePoint(
+      GriddedField field, Translation2d start, Translation2d goal) {
+    Translation2d free = field.freePointNear(start);
+    List<Translation2d> path = findPath(free, goal);
+    if (free == start || path.isEmpty()) {
+      return path;
+    }
+    List<Translation2d> fromStart = new ArrayList<>(path.size() + 1);
+    fromStart.add(start);
+    fromStart.addAll(path);
+    return fromStart;
+  }
+
+  /**
+   * @return The number of nodes expanded by the last plan, or 0 if the planner does not count them.
+   */
+  default int getExpansions() {
+    return 0;
+  }
+
+  /**
+   * @return The number of times the last plan lowered or recalculated the cost of a node, or 0 if
+   *     the planner does not count them.
+   */
+  default int getRelaxations() {
+    return 0;
+  }
+}
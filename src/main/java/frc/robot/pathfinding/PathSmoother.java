@@ -0,0 +1,149 @@
+package frc.robot.pathfinding;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a path with one point per grid into a short list of waypoints. Runs of points going in the
+ * same direction are collapsed to their ends, and then each waypoint is pulled as far ahead as it
+ * can see, so the robot gets long straight segments instead of a new point every 4 cm.
+ *
+ * <p>Can be used on its own, or wrapped around another planner so that every path it finds comes
+ * out smoothed.
+ */
+public class PathSmoother implements PathPlanner {
+  private final GriddedField field;
+  private final LineOfSight lineOfSight;
+  private final PathPlanner planner;
+
+  /**
+   * Constructor for smoothing paths by hand with {@link #smooth(List)}.
+   *
+   * @param field The field the paths are on.
+   */
+  public PathSmoother(GriddedField field) {
+    this(field, null);
+  }
+
+  /**
+   * Constructor for smoothing every path another planner finds.
+   *
+   * @param field The field the paths are on.
+   * @param planner The planner whose paths are smoothed.
+   */
+  public PathSmoother(GriddedField field, PathPlanner planner) {
+    this.field = field;
+    this.planner = planner;
+    lineOfSight = new LineOfSight(field);
+  }
+
+  /**
+   * Finds a path with the wrapped planner, then smooths it.
+   *
+   * @param start The position of the robot.
+   * @param goal The goal of the robot.
+   * @return The waypoints of the path, starting with start, or an empty list if there is no path.
+   * @throws IllegalStateException If this smoother was not given a planner to wrap.
+   */
+  @Override
+  public List<Translation2d> findPath(Translation2d start, Translation2d goal) {
+    if (planner == null) {
+      throw new IllegalStateException("This PathSmoother has no planner to smooth the paths of");
+    }
+    return smooth(planner.findPath(start, goal));
+  }
+
+  /**
+   * @return The number of nodes the wrapped planner expanded in the last plan.
+   */
+  @Override
+  public int getExpansions() {
+    return planner == null ? 0 : planner.getExpansions();
+  }
+
+  /**
+   * @return The number of relaxations the wrapped planner made in the last plan.
+   */
+  @Override
+  public int getRelaxations() {
+    return planner == null ? 0 : planner.getRelaxations();
+  }
+
+  /**
+   * Smooths a path.
+   *
+   * @param path The points of the path, the way the planners give them.
+   * @return The waypoints of the path. The first and last points are always kept.
+   */
+  public List<Translation2d> smooth(List<Translation2d> path) {
+    return pull(collapse(path));
+  }
+
+  /**
+   * Removes every point which is in a straight line with the points before and after it.
+   *
+   * @param path The points of a path.
+   * @return The points where the path changes direction, with both ends.
+   */
+  public List<Translation2d> collapse(List<Translation2d> path) {
+    List<Translation2d> corners = new ArrayList<>();
+    if (path.size() <= 2) {
+      corners.addAll(path);
+      return corners;
+    }
+
+    corners.add(path.get(0));
+    for (int i = 1; i < path.size() - 1; i++) {
+      Translation2d previous = path.get(i - 1);
+      Translation2d current = path.get(i);
+      Translation2d next = path.get(i + 1);
+      if (!sameDirection(previous, current, next)) {
+        corners.add(current);
+      }
+    }
+    corners.add(path.get(path.size() - 1));
+    return corners;
+  }
+
+  /* Whether the steps from a to b and from b to c point the same way: they are on one line, so
+   * their cross product is zero, and not doubling back, so their dot product is positive. Steps of
+   * any-angle planners are not one cell long, so matching signs is not enough. */
+  private static boolean sameDirection(Translation2d a, Translation2d b, Translation2d c) {
+    double firstX = b.getX() - a.getX();
+    double firstY = b.getY() - a.getY();
+    double secondX = c.getX() - b.getX();
+    double secondY = c.getY() - b.getY();
+    return firstX * secondY - firstY * secondX == 0 && firstX * secondX + firstY * secondY > 0;
+  }
+
+  /**
+   * Greedily skips waypoints. From each waypoint kept, the path goes straight to the farthest
+   * following waypoint it can still see.
+   *
+   * @param waypoints The waypoints of a path.
+   * @return The waypoints which are left.
+   */
+  public List<Translation2d> pull(List<Translation2d> waypoints) {
+    List<Translation2d> pulled = new ArrayList<>();
+    if (waypoints.size() <= 2) {
+      pulled.addAll(waypoints);
+      return pulled;
+    }
+
+    int anchor = 0;
+    pulled.add(waypoints.get(0));
+    while (anchor < waypoints.size() - 1) {
+      int anchorCell = field.coordsToCell(waypoints.get(anchor));
+      int next = anchor + 1;
+      // The next waypoint is always reachable, it is where the path was going anyway.
+      while (next + 1 < waypoints.size()
+          && lineOfSight.visible(anchorCell, field.coordsToCell(waypoints.get(next + 1)))) {
+        next++;
+      }
+      pulled.add(waypoints.get(next));
+      anchor = next;
+    }
+    return pulled;
+  }
+}
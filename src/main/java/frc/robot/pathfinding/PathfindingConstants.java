@@ -1,5 +1,7 @@
 package frc.robot.pathfinding;
 
+import frc.robot.Constants;
+
 public class PathfindingConstants {
   /*
    * The distance from the start point of the path, before it begins to
@@ -26,4 +28,71 @@ public class PathfindingConstants {
    * The side length of each individual grid used in the GriddedField.
    */
   public static final int GRID_SIDE_LENGTH = 4;
+
+  /*
+   * How close, in cm, the center of the robot can come to an obstacle.
+   * Constants.ROBOT_RADIUS is in meters, while the field is in cm.
+   */
+  public static final double CLEARANCE_RADIUS = Constants.ROBOT_RADIUS * 100;
+
+  /*
+   * The cost of moving diagonally to an adjacent grid, in grids.
+   * 1.4 is an approximation for the square root of two.
+   */
+  public static final double DIAGONAL_COST = 1.4;
+
+  /*
+   * The most grids an A* search will expand before it gives up.
+   * This bounds the time a single plan can take. A search across an
+   * empty field expands a few thousand grids, so this leaves plenty of room
+   * to go around obstacles.
+   */
+  public static final int MAX_EXPANSIONS = 40000;
+
+  /*
+   * The most changed grids an incremental planner will repair between two plans.
+   * If more grids than this change at once, it starts over instead.
+   */
+  public static final int MAX_REPAIRED_CELLS = 8192;
+
+  /*
+   * How close, in cm, the robot has to come to a waypoint before it moves on to the next one.
+   */
+  public static final double WAYPOINT_TOLERANCE = 2 * GRID_SIDE_LENGTH;
+
+  /*
+   * The side length, in grids, of the clusters the hierarchical planner cuts the field into.
+   * Bigger clusters mean fewer entrances to search, but more work filling in the path.
+   */
+  public static final int HPA_CLUSTER_SIZE = 16;
+
+  /*
+   * How many grids long a free stretch of cluster border has to be before it gets an entrance at
+   * each end instead of one in the middle.
+   */
+  public static final int HPA_WIDE_ENTRANCE = 6;
+
+  /*
+   * How far from the shortest path the first path of the anytime planner can be, as a factor.
+   * Higher numbers find the first path faster, since the search heads more greedily to the goal.
+   */
+  public static final double ANYTIME_INITIAL_EPSILON = 3.0;
+
+  /*
+   * How much the factor drops each time the anytime planner finishes a path, until it reaches 1
+   * and the path is the shortest one.
+   */
+  public static final double ANYTIME_EPSILON_STEP = 0.5;
+
+  /*
+   * How long, in microseconds, the anytime planner can take each time it is called.
+   * A small slice of the 20 ms robot period.
+   */
+  public static final long ANYTIME_BUDGET_MICROS = 2000;
+
+  /*
+   * The side length, in grids, of the largest free square the quadtree keeps as one node.
+   * Larger squares mean fewer nodes to search, but longer detours through their centers.
+   */
+  public static final int QUADTREE_MAX_LEAF_SIZE = 32;
 }
@@ -0,0 +1,160 @@
+package frc.robot.pathfinding;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a planner on its own thread, so a slow plan never holds up the robot loop. The loop hands
+ * over what the plan needs with {@link #submit} and picks up the latest finished plan with {@link
+ * #latestResult()}, and neither ever waits on the other.
+ *
+ * <p>Requests go through a mailbox with room for one. A request the thread has not started on yet
+ * is replaced by a newer one, so the thread always plans from the latest snapshot and never falls
+ * behind. Results are immutable and published through an atomic reference.
+ *
+ * <p>Once the service is started, its thread owns the field. The moving obstacles are put on the
+ * field by the thread, from the snapshot in each request, and nothing else should change or read
+ * the field while the service is running.
+ */
+public class PlannerService implements AutoCloseable {
+  /**
+   * Everything one plan needs, taken on the robot loop.
+   *
+   * @param start The position of the robot, in cm.
+   * @param goal The goal of the robot, in cm.
+   * @param movingObstacles The moving obstacles when the request was made.
+   * @param sequence The number of the request. Later requests have higher numbers.
+   */
+  public record Request(
+      Translation2d start, Translation2d goal, List<Obstacle> movingObstacles, long sequence) {}
+
+  /**
+   * A finished plan.
+   *
+   * @param request The request it was planned for.
+   * @param path The points of the path, or an empty list if there is none. Can not be changed.
+   * @param planningNanos How long the plan took, in nanoseconds.
+   */
+  public record Result(Request request, List<Translation2d> path, long planningNanos) {}
+
+  // How long the thread sleeps when there is nothing to do before it checks again, in case a wake
+  // up was missed.
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  private final GriddedField field;
+  private final PathPlanner planner;
+  private final Thread thread;
+
+  private final AtomicReference<Request> mailbox = new AtomicReference<>();
+  private final AtomicReference<Result> latest = new AtomicReference<>();
+
+  // Where the cost of each plan is published, or null.
+  private volatile PlannerTelemetry telemetry;
+
+  private volatile boolean running = true;
+  private long sequence = 0;
+
+  /**
+   * Constructor. The thread does not run until {@link #start()} is called.
+   *
+   * @param field The field the planner plans on. Owned by the service's thread once it starts.
+   * @param planner The planner to run.
+   */
+  public PlannerService(GriddedField field, PathPlanner planner) {
+    this.field = field;
+    this.planner = planner;
+    thread = new Thread(this::run, "PlannerService");
+    // Never keeps the robot program alive on its own.
+    thread.setDaemon(true);
+  }
+
+  /** Starts the planner thread. Does nothing if it has already started. */
+  public synchronized void start() {
+    if (thread.getState() == Thread.State.NEW) {
+      thread.start();
+    }
+  }
+
+  /**
+   * Asks for a new plan. Replaces the last request if the thread has not started on it yet.
+   *
+   * @param start The position of the robot, in cm.
+   * @param goal The goal of the robot, in cm.
+   * @param movingObstacles The moving obstacles right now. Copied, so the list can be reused.
+   * @return The request, whose sequence number its result will carry.
+   */
+  public Request submit(Translation2d start, Translation2d goal, List<Obstacle> movingObstacles) {
+    Request request = new Request(start, goal, List.copyOf(movingObstacles), ++sequence);
+    mailbox.set(request);
+    LockSupport.unpark(thread);
+    return request;
+  }
+
+  /**
+   * Publishes the cost of every plan from now on, from the service's thread.
+   *
+   * @param telemetry Where to publish, or null to stop.
+   */
+  public void setTelemetry(PlannerTelemetry telemetry) {
+    this.telemetry = telemetry;
+  }
+
+  /**
+   * @return The latest finished plan, or null if no plan has finished yet. Never waits.
+   */
+  public Result latestResult() {
+    return latest.get();
+  }
+
+  /** Stops the planner thread, waiting for a plan in progress to finish. */
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    while (running) {
+      Request request = mailbox.getAndSet(null);
+      if (request == null) {
+        LockSupport.parkNanos(this, IDLE_NANOS);
+        continue;
+      }
+
+      PlannerTelemetry currentTelemetry = telemetry;
+      long allocatedBefore = currentTelemetry == null ? -1 : PlannerTelemetry.allocatedBytes();
+      long startTime = System.nanoTime();
+      List<Translation2d> path;
+      try {
+        field.addTempObstacles(request.movingObstacles());
+        long searchStart = System.nanoTime();
+        path =
+            List.copyOf(planner.findPathFromFreePoint(field, request.start(), request.goal()));
+        if (currentTelemetry != null) {
+          currentTelemetry.record(
+              planner,
+              field,
+              searchStart - startTime,
+              System.nanoTime() - searchStart,
+              path,
+              PlannerTelemetry.allocatedSince(allocatedBefore));
+        }
+      } catch (RuntimeException e) {
+        // The thread has to outlive a bad plan, or the robot would never get another one. The
+        // failed plan is published as having no path.
+        DriverStation.reportError("Planning failed: " + e, e.getStackTrace());
+        path = List.of();
+      }
+      latest.set(new Result(request, path, System.nanoTime() - startTime));
+    }
+  }
+}
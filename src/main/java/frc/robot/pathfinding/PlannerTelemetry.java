@@ -0,0 +1,172 @@
+package frc.robot.pathfinding;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Publishes what each plan cost, to NetworkTables to watch live on the dashboard and to the data
+ * log to go over after a match. Every publisher and log entry is made up front, so recording a plan
+ * allocates nothing.
+ *
+ * <p>Each plan records the nodes the planner expanded and relaxed, the moving obstacles and the
+ * cells they covered, how long the obstacles and the search took, how long the path is, and how
+ * many bytes the plan allocated.
+ */
+public class PlannerTelemetry {
+  private static final java.lang.management.ThreadMXBean THREADS =
+      ManagementFactory.getThreadMXBean();
+
+  /** One number, published to NetworkTables and the data log under the same name. */
+  private static class Channel {
+    private final IntegerPublisher publisher;
+    private final IntegerLogEntry entry;
+
+    Channel(NetworkTable table, DataLog log, String prefix, String name) {
+      publisher = table == null ? null : table.getIntegerTopic(name).publish();
+      entry = log == null ? null : new IntegerLogEntry(log, prefix + name);
+    }
+
+    void set(long value) {
+      if (publisher != null) {
+        publisher.set(value);
+      }
+      if (entry != null) {
+        entry.append(value);
+      }
+    }
+  }
+
+  private final Channel plans;
+  private final Channel expansions;
+  private final Channel relaxations;
+  private final Channel obstacles;
+  private final Channel obstacleCells;
+  private final Channel obstacleMicros;
+  private final Channel searchMicros;
+  private final Channel totalMicros;
+  private final Channel allocatedBytes;
+
+  // The path length is the only number which is not whole.
+  private final DoublePublisher pathLengthPublisher;
+  private final DoubleLogEntry pathLengthEntry;
+
+  private long planCount = 0;
+
+  /**
+   * Constructor. Publishes to the default NetworkTables instance and to the data log started by
+   * DataLogManager.
+   *
+   * @param name The name of the table, and of the folder in the data log.
+   */
+  public PlannerTelemetry(String name) {
+    this(NetworkTableInstance.getDefault().getTable(name), DataLogManager.getLog(), name);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param table The table to publish to, or null to not publish.
+   * @param log The data log to log to, or null to not log.
+   * @param name The folder in the data log.
+   */
+  public PlannerTelemetry(NetworkTable table, DataLog log, String name) {
+    String prefix = "/" + name + "/";
+    plans = new Channel(table, log, prefix, "plans");
+    expansions = new Channel(table, log, prefix, "expansions");
+    relaxations = new Channel(table, log, prefix, "relaxations");
+    obstacles = new Channel(table, log, prefix, "obstacles");
+    obstacleCells = new Channel(table, log, prefix, "obstacleCells");
+    obstacleMicros = new Channel(table, log, prefix, "obstacleMicros");
+    searchMicros = new Channel(table, log, prefix, "searchMicros");
+    totalMicros = new Channel(table, log, prefix, "totalMicros");
+    allocatedBytes = new Channel(table, log, prefix, "allocatedBytes");
+    pathLengthPublisher = table == null ? null : table.getDoubleTopic("pathLength").publish();
+    pathLengthEntry = log == null ? null : new DoubleLogEntry(log, prefix + "pathLength");
+  }
+
+  /**
+   * Records one plan.
+   *
+   * @param planner The planner which made the plan, which is asked for its counters.
+   * @param field The field the plan was made on, with the plan's moving obstacles on it.
+   * @param obstacleNanos How long putting the moving obstacles on the field took, in nanoseconds.
+   * @param searchNanos How long the planner took, in nanoseconds.
+   * @param path The path the planner found.
+   * @param allocated How many bytes the plan allocated, or -1 if that is not known.
+   */
+  public void record(
+      PathPlanner planner,
+      GriddedField field,
+      long obstacleNanos,
+      long searchNanos,
+      List<Translation2d> path,
+      long allocated) {
+    plans.set(++planCount);
+    expansions.set(planner.getExpansions());
+    relaxations.set(planner.getRelaxations());
+    obstacles.set(field.getMovingObstacles().size());
+    obstacleCells.set(field.grid().temporaryCount());
+    obstacleMicros.set(obstacleNanos / 1000);
+    searchMicros.set(searchNanos / 1000);
+    totalMicros.set((obstacleNanos + searchNanos) / 1000);
+    allocatedBytes.set(allocated);
+
+    double length = pathLength(path);
+    if (pathLengthPublisher != null) {
+      pathLengthPublisher.set(length);
+    }
+    if (pathLengthEntry != null) {
+      pathLengthEntry.append(length);
+    }
+  }
+
+  /**
+   * @return The number of plans recorded so far.
+   */
+  public long getPlanCount() {
+    return planCount;
+  }
+
+  /**
+   * @param path The points of a path.
+   * @return The length of the path, in cm.
+   */
+  public static double pathLength(List<Translation2d> path) {
+    double length = 0;
+    // Indexed, so no iterator is allocated.
+    for (int i = 1; i < path.size(); i++) {
+      length += path.get(i - 1).getDistance(path.get(i));
+    }
+    return length;
+  }
+
+  /**
+   * @return How many bytes the current thread has allocated since it started, or -1 if the JVM can
+   *     not tell. The difference between two calls is what was allocated in between.
+   */
+  public static long allocatedBytes() {
+    if (THREADS instanceof com.sun.management.ThreadMXBean threads
+        && threads.isThreadAllocatedMemorySupported()
+        && threads.isThreadAllocatedMemoryEnabled()) {
+      return threads.getCurrentThreadAllocatedBytes();
+    }
+    return -1;
+  }
+
+  /**
+   * @param before What {@link #allocatedBytes()} returned earlier on the same thread.
+   * @return How many bytes the thread has allocated since, or -1 if the JVM can not tell.
+   */
+  public static long allocatedSince(long before) {
+    return before < 0 ? -1 : allocatedBytes() - before;
+  }
+}
@@ -0,0 +1,171 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A* over the leaves of a {@link FieldQuadtree} instead of over every cell. Open parts of the field
+ * are a few large squares, so a plan across them expands far fewer nodes, while next to obstacles
+ * and around the goal the leaves are single cells and the plan is as fine as the grid.
+ *
+ * <p>The search moves from the center of one leaf to the center of the next through the middle of
+ * the side they share, except in the start and goal leaves, where it uses the robot and the goal
+ * themselves. Every leaf is a free square, so each of those straight pieces stays clear of the
+ * blocked cells. The path can be wrapped in a {@link PathSmoother} to pull out the zigzags.
+ */
+public class QuadtreeAstar implements PathPlanner {
+  private final GriddedField field;
+  private final FieldQuadtree tree;
+
+  // The search over leaves, indexed by leaf. Sized for the most leaves the tree could have.
+  private final SearchState search;
+
+  // Where the search entered each leaf it reached, in cells.
+  private final float[] entryX;
+  private final float[] entryY;
+
+  // The neighbours of the leaf being expanded, and where the robot crosses into each.
+  private final int[] neighbours = new int[4 * QUADTREE_MAX_LEAF_SIZE + 4];
+  private final float[] crossX = new float[neighbours.length];
+  private final float[] crossY = new float[neighbours.length];
+
+  private int expansions = 0;
+
+  /**
+   * Constructor. Builds the quadtree of the field.
+   *
+   * @param field The field on which the algorithm is working on.
+   */
+  public QuadtreeAstar(GriddedField field) {
+    this.field = field;
+    tree = new FieldQuadtree(field);
+    int cellCount = field.grid().cellCount();
+    search = new SearchState(cellCount);
+    entryX = new float[cellCount];
+    entryY = new float[cellCount];
+  }
+
+  /**
+   * Finds a path which avoids all obstacles on the field.
+   *
+   * @param startPos The position of the robot.
+   * @param goalPos The goal of the robot.
+   * @return The points of the path, or an empty list if there is no path.
+   */
+  @Override
+  public List<Translation2d> findPath(Translation2d startPos, Translation2d goalPos) {
+    tree.update();
+    expansions = 0;
+    if (field.isBlocked(startPos) || field.isBlocked(goalPos)) {
+      return new ArrayList<>();
+    }
+
+    int start = tree.leafOf(field.coordsToCell(startPos));
+    int goal = tree.leafOf(field.coordsToCell(goalPos));
+    if (start < 0 || goal < 0) {
+      return new ArrayList<>();
+    }
+    List<Translation2d> points = new ArrayList<>();
+    if (start == goal) {
+      // One free square holds both, so the straight line between them is clear.
+      points.add(startPos);
+      points.add(goalPos);
+      return points;
+    }
+
+    float goalX = (float) goalPos.getX() / GRID_SIDE_LENGTH;
+    float goalY = (float) goalPos.getY() / GRID_SIDE_LENGTH;
+    search.reset();
+    IndexedMinHeap open = search.open();
+    entryX[start] = (float) startPos.getX() / GRID_SIDE_LENGTH;
+    entryY[start] = (float) startPos.getY() / GRID_SIDE_LENGTH;
+    search.reach(start, 0, -1);
+    open.push(start, distance(entryX[start], entryY[start], goalX, goalY), 0);
+
+    while (!open.isEmpty()) {
+      int current = open.pop();
+      if (current == goal) {
+        return buildPath(startPos, goalPos, goal);
+      }
+      search.close(current);
+      expansions++;
+
+      // The start leaf is left from the robot, every other leaf from its center.
+      float fromX = current == start ? entryX[start] : tree.centerX(current);
+      float fromY = current == start ? entryY[start] : tree.centerY(current);
+      int count = tree.neighbours(current, neighbours, crossX, crossY);
+      for (int i = 0; i < count; i++) {
+        int neighbour = neighbours[i];
+        if (search.isClosed(neighbour)) {
+          continue;
+        }
+        // The goal leaf is crossed to the goal, every other leaf to its center.
+        float toX = neighbour == goal ? goalX : tree.centerX(neighbour);
+        float toY = neighbour == goal ? goalY : tree.centerY(neighbour);
+        float proposed =
+            search.g(current)
+                + distance(fromX, fromY, crossX[i], crossY[i])
+                + distance(crossX[i], crossY[i], toX, toY);
+        if (proposed >= search.g(neighbour)) {
+          continue;
+        }
+        search.reach(neighbour, proposed, current);
+        entryX[neighbour] = crossX[i];
+        entryY[neighbour] = crossY[i];
+        float heuristic = distance(toX, toY, goalX, goalY);
+        open.push(neighbour, proposed + heuristic, heuristic);
+      }
+    }
+    return points;
+  }
+
+  private static float distance(float x1, float y1, float x2, float y2) {
+    return (float) Math.hypot(x2 - x1, y2 - y1);
+  }
+
+  /**
+   * Follows the parents back from the goal leaf.
+   *
+   * @param startPos The position of the robot.
+   * @param goalPos The goal of the robot.
+   * @param goal The leaf of the goal.
+   * @return The points of the path, from startPos to goalPos.
+   */
+  private List<Translation2d> buildPath(Translation2d startPos, Translation2d goalPos, int goal) {
+    List<Translation2d> points = new ArrayList<>();
+    points.add(goalPos);
+    for (int leaf = goal; search.parent(leaf) >= 0; leaf = search.parent(leaf)) {
+      points.add(toTranslation(entryX[leaf], entryY[leaf]));
+      int previous = search.parent(leaf);
+      if (search.parent(previous) >= 0) {
+        points.add(toTranslation(tree.centerX(previous), tree.centerY(previous)));
+      }
+    }
+    points.add(startPos);
+    Collections.reverse(points);
+    return points;
+  }
+
+  private static Translation2d toTranslation(float x, float y) {
+    return new Translation2d(x * GRID_SIDE_LENGTH, y * GRID_SIDE_LENGTH);
+  }
+
+  /**
+   * @return The number of leaves expanded by the last plan.
+   */
+  @Override
+  public int getExpansions() {
+    return expansions;
+  }
+
+  /**
+   * @return The quadtree the plans are searched over.
+   */
+  public FieldQuadtree tree() {
+    return tree;
+  }
+}
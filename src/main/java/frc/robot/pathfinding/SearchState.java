@@ -0,0 +1,108 @@
+package frc.robot.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * The per-cell bookkeeping of a best-first grid search: the cost from the search's root, the
+ * parent pointer, the closed set and the open heap. Allocated once per planner and reused for
+ * every plan.
+ *
+ * <p>Every cell is stamped with the search that last wrote it. A cell stamped by an older search
+ * reads as unreached and open, so starting a new search only moves on to the next stamp instead
+ * of clearing every cell.
+ */
+public class SearchState {
+  // The cost of a cell the search has not reached yet.
+  public static final float UNREACHED = Float.POSITIVE_INFINITY;
+
+  private final float[] g;
+  private final int[] parent;
+  private final IndexedMinHeap open;
+
+  // The search which last reached each cell, and the search which last closed it.
+  private final int[] reachedIn;
+  private final int[] closedIn;
+
+  // The current search. Stamps start at 0, so the first search is 1.
+  private int generation = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param cellCount The number of cells in the grid being searched.
+   */
+  public SearchState(int cellCount) {
+    g = new float[cellCount];
+    parent = new int[cellCount];
+    open = new IndexedMinHeap(cellCount);
+    reachedIn = new int[cellCount];
+    closedIn = new int[cellCount];
+    reset();
+  }
+
+  /** Clears every cell so a new search can begin. Only touches the cells left on the heap. */
+  public void reset() {
+    open.clear();
+    generation++;
+    if (generation == Integer.MAX_VALUE) {
+      // Once in two billion searches, the stamps start over so an old one is never mistaken for
+      // the current one.
+      Arrays.fill(reachedIn, 0);
+      Arrays.fill(closedIn, 0);
+      generation = 1;
+    }
+  }
+
+  /**
+   * @param id A cell id.
+   * @return The cost from the root of the search to the cell, or UNREACHED.
+   */
+  public float g(int id) {
+    return reachedIn[id] == generation ? g[id] : UNREACHED;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return The cell the search reached this cell from, or -1.
+   */
+  public int parent(int id) {
+    return reachedIn[id] == generation ? parent[id] : -1;
+  }
+
+  /**
+   * Records a new best way to reach a cell.
+   *
+   * @param id A cell id.
+   * @param cost The cost from the root of the search.
+   * @param from The cell it was reached from, or -1 for the root.
+   */
+  public void reach(int id, float cost, int from) {
+    g[id] = cost;
+    parent[id] = from;
+    reachedIn[id] = generation;
+  }
+
+  /**
+   * @param id A cell id.
+   * @return Whether the cell has been expanded.
+   */
+  public boolean isClosed(int id) {
+    return closedIn[id] == generation;
+  }
+
+  /**
+   * Marks a cell as expanded.
+   *
+   * @param id A cell id.
+   */
+  public void close(int id) {
+    closedIn[id] = generation;
+  }
+
+  /**
+   * @return The open heap of the search.
+   */
+  public IndexedMinHeap open() {
+    return open;
+  }
+}
@@ -0,0 +1,155 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.*;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.pathfinding.Convenience.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An any-angle planner using Lazy Theta*. It searches the same 8-connected grid as A*, but a cell's
+ * parent does not have to be its neighbour: every cell is first assumed to be reachable in a
+ * straight line from its neighbour's parent, and that guess is only checked with a line of sight
+ * when the cell is expanded. The paths run straight between obstacle corners at any angle, instead
+ * of being made of 45 degree steps, and each expansion costs at most one line of sight check.
+ *
+ * <p>The path only has a point where it turns, so it is already as short as a smoothed A* path or
+ * shorter.
+ */
+public class ThetaStar implements PathPlanner {
+  private final GriddedField field;
+  private final FieldGrid grid;
+  private final SearchState search;
+  private final LineOfSight lineOfSight;
+
+  private int goal = -1;
+  private int expansions = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param field The field on which the algorithm is working on.
+   */
+  public ThetaStar(GriddedField field) {
+    this.field = field;
+    grid = field.grid();
+    search = new SearchState(grid.cellCount());
+    lineOfSight = new LineOfSight(field);
+  }
+
+  @Override
+  public List<Translation2d> findPath(Translation2d startPos, Translation2d goalPos) {
+    search.reset();
+    expansions = 0;
+
+    int start = field.coordsToCell(startPos);
+    goal = field.coordsToCell(goalPos);
+    if (field.isBlocked(startPos) || field.isBlocked(goalPos)) {
+      return new ArrayList<>();
+    }
+
+    IndexedMinHeap open = search.open();
+    search.reach(start, 0, start);
+    open.push(start, distance(start, goal), distance(start, goal));
+
+    while (!open.isEmpty() && expansions < MAX_EXPANSIONS) {
+      int current = open.pop();
+      setVertex(current);
+      search.close(current);
+      expansions++;
+
+      if (current == goal) {
+        return buildPath(startPos, start);
+      }
+
+      int x = grid.x(current);
+      int y = grid.y(current);
+      int parent = search.parent(current);
+
+      for (Point p : CharliesAstar.intpair) {
+        if (!field.canMove(x, y, p.getX(), p.getY())) {
+          continue;
+        }
+        int neighbour = grid.id(x + p.getX(), y + p.getY());
+        if (search.isClosed(neighbour)) {
+          continue;
+        }
+
+        // Assumes the neighbour can be seen from the parent. Checked once it is expanded.
+        float proposed = search.g(parent) + distance(parent, neighbour);
+        if (proposed < search.g(neighbour)) {
+          search.reach(neighbour, proposed, parent);
+          float heuristic = distance(neighbour, goal);
+          open.push(neighbour, proposed + heuristic, heuristic);
+        }
+      }
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * @return The number of cells expanded by the last plan.
+   */
+  @Override
+  public int getExpansions() {
+    return expansions;
+  }
+
+  /**
+   * Checks the guess that a cell can be seen from its parent. If it can not, the cell takes the
+   * best of its expanded neighbours as its parent instead, which it can always reach.
+   *
+   * @param cell The cell about to be expanded.
+   */
+  private void setVertex(int cell) {
+    int parent = search.parent(cell);
+    if (parent == cell || lineOfSight.visible(parent, cell)) {
+      return;
+    }
+
+    int x = grid.x(cell);
+    int y = grid.y(cell);
+    float best = SearchState.UNREACHED;
+    int bestParent = parent;
+    for (Point p : CharliesAstar.intpair) {
+      if (!field.canMove(x, y, p.getX(), p.getY())) {
+        continue;
+      }
+      int neighbour = grid.id(x + p.getX(), y + p.getY());
+      if (search.isClosed(neighbour)) {
+        float cost = search.g(neighbour) + distance(neighbour, cell);
+        if (cost < best) {
+          best = cost;
+          bestParent = neighbour;
+        }
+      }
+    }
+    search.reach(cell, best, bestParent);
+  }
+
+  // The straight line distance between two cells, in cells.
+  private float distance(int from, int to) {
+    int dx = grid.x(to) - grid.x(from);
+    int dy = grid.y(to) - grid.y(from);
+    return (float) Math.sqrt(dx * dx + dy * dy);
+  }
+
+  /**
+   * Follows the parents from the goal back to the start.
+   *
+   * @param startPos The position of the robot.
+   * @param start The cell of the robot.
+   * @return The points of the path from startPos to the goal, one at each turn.
+   */
+  private List<Translation2d> buildPath(Translation2d startPos, int start) {
+    List<Translation2d> points = new ArrayList<>();
+    for (int cell = goal; cell != start; cell = search.parent(cell)) {
+      points.add(field.cellToTranslation(cell));
+    }
+    points.add(startPos);
+    Collections.reverse(points);
+    return points;
+  }
+}
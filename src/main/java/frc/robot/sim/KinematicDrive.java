@@ -0,0 +1,86 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Drive;
+import frc.robot.pathfinding.GriddedField;
+
+/**
+ * A drive with no hardware behind it. It remembers the last pose it was sent to, and each call to
+ * {@link #step(double)} moves it toward that pose in a straight line, speeding up and slowing down
+ * no faster than a real drivetrain could.
+ */
+public class KinematicDrive extends Drive {
+  // The top speed of the robot, in cm per second.
+  private static final double MAX_SPEED = 450;
+
+  // How quickly the robot can speed up or slow down, in cm per second squared.
+  private static final double MAX_ACCELERATION = 900;
+
+  private Pose2d pose;
+  private Pose2d target;
+  private double commandedSpeed = 0;
+  private double velocity = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param field The field the robot drives on.
+   * @param start Where the robot starts.
+   */
+  public KinematicDrive(GriddedField field, Pose2d start) {
+    super(field);
+    pose = start;
+    target = start;
+  }
+
+  /**
+   * Sends the robot toward a pose. It drives there over the following calls to {@link
+   * #step(double)}.
+   *
+   * @param position The pose to drive to.
+   * @param speed The speed wanted, in cm per second. Capped at the robot's top speed.
+   * @return A command which does nothing, the driving happens in {@link #step(double)}.
+   */
+  @Override
+  public Command goToState(Pose2d position, double speed) {
+    target = position;
+    commandedSpeed = speed;
+    return new Command() {};
+  }
+
+  /**
+   * Moves the robot along for some time.
+   *
+   * @param seconds How long to move for.
+   */
+  public void step(double seconds) {
+    Translation2d toTarget = target.getTranslation().minus(pose.getTranslation());
+    double distance = toTarget.getNorm();
+    // Never faster than it could still stop from at the target.
+    double wanted =
+        Math.min(
+            Math.min(commandedSpeed, MAX_SPEED), Math.sqrt(2 * MAX_ACCELERATION * distance));
+    double change = MAX_ACCELERATION * seconds;
+    velocity = Math.max(velocity - change, Math.min(velocity + change, wanted));
+
+    double travel = Math.min(velocity * seconds, distance);
+    if (distance > 0) {
+      Translation2d moved = pose.getTranslation().plus(toTarget.times(travel / distance));
+      pose = new Pose2d(moved, target.getRotation());
+    } else {
+      pose = target;
+    }
+  }
+
+  @Override
+  public Pose2d getPose() {
+    return pose;
+  }
+
+  @Override
+  public double getVelocity() {
+    return velocity;
+  }
+}
@@ -0,0 +1,198 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.commands.PathFollowing;
+import frc.robot.pathfinding.GriddedField;
+import frc.robot.pathfinding.Obstacle;
+import frc.robot.pathfinding.PathfindingConstants;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays a match through PathFollowing without a robot. Every period, the other robots of the trace
+ * are handed to the follower, the follower plans and sends the robot on, and a {@link
+ * KinematicDrive} drives it there. The time each period takes is measured against the robot loop's
+ * budget, so a slower planner shows up here before it shows up on the field.
+ *
+ * <p>Run by the replay Gradle task.
+ */
+public final class ReplayHarness {
+  // The length of a robot period, in seconds. The robot loop runs at 50 Hz.
+  private static final double PERIOD_SECONDS = 0.02;
+
+  private static final long BUDGET_NANOS = (long) (PERIOD_SECONDS * 1e9);
+
+  private static final int SYNTHETIC_PERIODS = 1500;
+  private static final int SYNTHETIC_ROBOTS = 5;
+
+  /**
+   * What happened over one replay.
+   *
+   * @param loopNanos How long each period took, in nanoseconds.
+   * @param planningNanos How long each plan took, in nanoseconds, one per plan.
+   * @param distance How far the robot drove, in cm.
+   * @param goalsReached How many goals the robot reached.
+   * @param blockedPeriods How many periods ended with the robot too close to an obstacle.
+   */
+  public record Report(
+      long[] loopNanos,
+      long[] planningNanos,
+      double distance,
+      int goalsReached,
+      int blockedPeriods) {
+    /**
+     * @return How many periods took longer than the robot loop's budget.
+     */
+    public int overruns() {
+      int overruns = 0;
+      for (long nanos : loopNanos) {
+        if (nanos > BUDGET_NANOS) {
+          overruns++;
+        }
+      }
+      return overruns;
+    }
+
+    /**
+     * @return A summary of the report, a few lines long.
+     */
+    @Override
+    public String toString() {
+      return String.format(
+          "periods %d, overruns of %d ms: %d%n"
+              + "loop ms     %s%n"
+              + "planning ms %s (%d plans)%n"
+              + "driven %.0f cm, goals reached %d, periods in blocked cells %d",
+          loopNanos.length,
+          BUDGET_NANOS / 1_000_000,
+          overruns(),
+          distribution(loopNanos),
+          distribution(planningNanos),
+          planningNanos.length,
+          distance,
+          goalsReached,
+          blockedPeriods);
+    }
+
+    private static String distribution(long[] nanos) {
+      if (nanos.length == 0) {
+        return "-";
+      }
+      long[] sorted = nanos.clone();
+      Arrays.sort(sorted);
+      return String.format(
+          "p50 %.2f  p95 %.2f  p99 %.2f  max %.2f",
+          percentile(sorted, 0.5) / 1e6,
+          percentile(sorted, 0.95) / 1e6,
+          percentile(sorted, 0.99) / 1e6,
+          sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+      return sorted[(int) Math.min(sorted.length - 1, Math.floor(fraction * sorted.length))];
+    }
+  }
+
+  private ReplayHarness() {}
+
+  /**
+   * Replays a trace through PathFollowing.
+   *
+   * @param trace The trace to replay.
+   * @param field The field, with no moving obstacles on it.
+   * @param periodsOut Where to write one line per period, or null.
+   * @return What happened.
+   */
+  public static Report replay(ReplayTrace trace, GriddedField field, PrintWriter periodsOut) {
+    KinematicDrive drive = new KinematicDrive(field, trace.start());
+    PathFollowing follower = new PathFollowing(drive, field);
+    List<ReplayTrace.Frame> frames = trace.frames();
+
+    long[] loopNanos = new long[frames.size()];
+    long[] planningNanos = new long[frames.size()];
+    int plans = 0;
+    double distance = 0;
+    int goalsReached = 0;
+    int blockedPeriods = 0;
+    boolean atGoal = false;
+    List<Translation2d> waypoints = follower.getWaypoints();
+    if (periodsOut != null) {
+      periodsOut.println("period,loop_ns,planning_ns,x,y");
+    }
+
+    for (int period = 0; period < frames.size(); period++) {
+      ReplayTrace.Frame frame = frames.get(period);
+      List<Obstacle> obstacles = frame.movingObstacles();
+
+      long startTime = System.nanoTime();
+      follower.pathFollow(() -> obstacles, frame.goal());
+      loopNanos[period] = System.nanoTime() - startTime;
+
+      // A new list of waypoints means the follower planned this period.
+      long planned = 0;
+      if (follower.getWaypoints() != waypoints) {
+        waypoints = follower.getWaypoints();
+        planned = follower.getPlanningNanos();
+        planningNanos[plans++] = planned;
+      }
+
+      Pose2d before = drive.getPose();
+      drive.step(PERIOD_SECONDS);
+      Pose2d after = drive.getPose();
+      distance += before.getTranslation().getDistance(after.getTranslation());
+
+      boolean reached =
+          after.getTranslation().getDistance(frame.goal().getTranslation())
+              < PathfindingConstants.GRID_SIDE_LENGTH;
+      if (reached && !atGoal) {
+        goalsReached++;
+      }
+      atGoal = reached;
+      // The follower only puts the obstacles on the field when it plans, so they are put on here
+      // too, outside of the timed loop, to check the robot against where they are now.
+      field.addTempObstacles(obstacles);
+      if (field.isBlocked(field.coordsToCell(after.getTranslation()))) {
+        blockedPeriods++;
+      }
+
+      if (periodsOut != null) {
+        periodsOut.printf(
+            "%d,%d,%d,%.1f,%.1f%n", period, loopNanos[period], planned, after.getX(), after.getY());
+      }
+    }
+    return new Report(
+        loopNanos, Arrays.copyOf(planningNanos, plans), distance, goalsReached, blockedPeriods);
+  }
+
+  /**
+   * @param args The trace file to replay, or "synthetic" for a made up match. Optionally followed
+   *     by a CSV file to write every period to.
+   * @throws IOException If a file could not be read or written.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      throw new IllegalArgumentException(
+          "Usage: ReplayHarness <trace file | synthetic> [periods csv]");
+    }
+    ReplayTrace trace =
+        args[0].equals("synthetic")
+            ? ReplayTrace.synthetic(0, SYNTHETIC_PERIODS, SYNTHETIC_ROBOTS, PERIOD_SECONDS)
+            : ReplayTrace.read(Paths.get(args[0]));
+
+    GriddedField field = new GriddedField();
+    Report report;
+    if (args.length == 2) {
+      try (PrintWriter periodsOut = new PrintWriter(Files.newBufferedWriter(Paths.get(args[1])))) {
+        report = replay(trace, field, periodsOut);
+      }
+    } else {
+      report = replay(trace, field, null);
+    }
+    System.out.println(report);
+  }
+}
@@ -0,0 +1,158 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants;
+import frc.robot.Constants.Field;
+import frc.robot.pathfinding.Obstacle;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * What happened on the field during a match, one frame per robot period: where the robot was told
+ * to go, and where the other robots were.
+ *
+ * <p>A trace file is plain text, with poses written as {@code x,y,degrees} in cm. The first line is
+ * the pose the robot starts at. Every following line is one period: the goal, then the pose of each
+ * other robot, separated by semicolons. Blank lines and lines starting with # are skipped.
+ *
+ * <pre>
+ * 150,150,0
+ * 1500,650,0; 800,400,90; 1200,300,45
+ * </pre>
+ *
+ * @param start Where the robot starts.
+ * @param frames The periods, in order.
+ */
+public record ReplayTrace(Pose2d start, List<ReplayTrace.Frame> frames) {
+  /**
+   * One robot period.
+   *
+   * @param goal Where the robot is told to go.
+   * @param robots The poses of the other robots.
+   */
+  public record Frame(Pose2d goal, List<Pose2d> robots) {
+    /**
+     * @return The other robots, as obstacles the size of a robot.
+     */
+    public List<Obstacle> movingObstacles() {
+      List<Obstacle> obstacles = new ArrayList<>(robots.size());
+      for (Pose2d robot : robots) {
+        obstacles.add(
+            Obstacle.rectangularObstacle(
+                robot, Constants.ROBOT_WIDTH * 100, Constants.ROBOT_LENGTH * 100));
+      }
+      return obstacles;
+    }
+  }
+
+  // Where the synthetic robots and goals stay, away from the walls.
+  private static final double MARGIN = 150;
+
+  /**
+   * Reads a trace file.
+   *
+   * @param file The file.
+   * @return The trace.
+   * @throws IOException If the file could not be read.
+   * @throws IllegalArgumentException If the file is not a trace.
+   */
+  public static ReplayTrace read(Path file) throws IOException {
+    Pose2d start = null;
+    List<Frame> frames = new ArrayList<>();
+    for (String line : Files.readAllLines(file)) {
+      line = line.strip();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] poses = line.split(";");
+      if (start == null) {
+        start = parsePose(poses[0]);
+        continue;
+      }
+      List<Pose2d> robots = new ArrayList<>(poses.length - 1);
+      for (int i = 1; i < poses.length; i++) {
+        robots.add(parsePose(poses[i]));
+      }
+      frames.add(new Frame(parsePose(poses[0]), robots));
+    }
+    if (start == null) {
+      throw new IllegalArgumentException(file + " has no start pose");
+    }
+    return new ReplayTrace(start, frames);
+  }
+
+  private static Pose2d parsePose(String text) {
+    String[] values = text.strip().split(",");
+    if (values.length != 3) {
+      throw new IllegalArgumentException("Not a pose: " + text);
+    }
+    return new Pose2d(
+        Double.parseDouble(values[0].strip()),
+        Double.parseDouble(values[1].strip()),
+        Rotation2d.fromDegrees(Double.parseDouble(values[2].strip())));
+  }
+
+  /**
+   * Makes up a match. The robot crosses between the corners of the field, moving on to the next
+   * corner every few seconds, while other robots drive in straight lines and bounce off the walls.
+   *
+   * @param seed The seed of the made up match. The same seed always makes the same match.
+   * @param periods How many periods the match lasts.
+   * @param robotCount How many other robots there are.
+   * @param periodSeconds How long a period is.
+   * @return The trace.
+   */
+  public static ReplayTrace synthetic(
+      long seed, int periods, int robotCount, double periodSeconds) {
+    Random random = new Random(seed);
+    double minX = MARGIN;
+    double minY = MARGIN;
+    double maxX = Field.FIELD_LENGTH - MARGIN;
+    double maxY = Field.FIELD_WIDTH - MARGIN;
+    Pose2d[] goals = {
+      new Pose2d(maxX, maxY, new Rotation2d()),
+      new Pose2d(minX, maxY, new Rotation2d()),
+      new Pose2d(maxX, minY, new Rotation2d()),
+      new Pose2d(minX, minY, new Rotation2d())
+    };
+    // How many periods the robot spends on each goal.
+    int periodsPerGoal = (int) Math.round(8 / periodSeconds);
+
+    double[] x = new double[robotCount];
+    double[] y = new double[robotCount];
+    double[] vx = new double[robotCount];
+    double[] vy = new double[robotCount];
+    for (int i = 0; i < robotCount; i++) {
+      x[i] = minX + random.nextDouble() * (maxX - minX);
+      y[i] = minY + random.nextDouble() * (maxY - minY);
+      // Up to 300 cm per second in any direction.
+      vx[i] = (random.nextDouble() * 2 - 1) * 300;
+      vy[i] = (random.nextDouble() * 2 - 1) * 300;
+    }
+
+    List<Frame> frames = new ArrayList<>(periods);
+    for (int period = 0; period < periods; period++) {
+      List<Pose2d> robots = new ArrayList<>(robotCount);
+      for (int i = 0; i < robotCount; i++) {
+        x[i] += vx[i] * periodSeconds;
+        y[i] += vy[i] * periodSeconds;
+        if (x[i] < minX || x[i] > maxX) {
+          vx[i] = -vx[i];
+          x[i] = Math.max(minX, Math.min(maxX, x[i]));
+        }
+        if (y[i] < minY || y[i] > maxY) {
+          vy[i] = -vy[i];
+          y[i] = Math.max(minY, Math.min(maxY, y[i]));
+        }
+        robots.add(new Pose2d(x[i], y[i], new Rotation2d(vx[i], vy[i])));
+      }
+      frames.add(new Frame(goals[(period / periodsPerGoal) % goals.length], robots));
+    }
+    return new ReplayTrace(new Pose2d(minX, minY, new Rotation2d()), frames);
+  }
+}
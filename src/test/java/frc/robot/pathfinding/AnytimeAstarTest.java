@@ -0,0 +1,52 @@
+package frc.robot.pathfinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Makes sure the search keeps what it has found while the obstacles move. */
+class AnytimeAstarTest {
+  private static final Translation2d START = new Translation2d(150, 400);
+  private static final Translation2d GOAL = new Translation2d(1500, 420);
+
+  // Long enough for every call to finish the search.
+  private static final long BUDGET_MICROS = 10_000_000;
+
+  @Test
+  void keepsImprovingWhileAnObstacleMoves() {
+    GriddedField field = new GriddedField();
+    AnytimeAstar astar = new AnytimeAstar(field);
+
+    for (int step = 0; step < 8; step++) {
+      // A robot crossing the straight line between the start and the goal.
+      field.addTempObstacles(
+          List.of(
+              Obstacle.rectangularObstacle(
+                  new Pose2d(800, 300 + step * 8, new Rotation2d()), 100, 100)));
+      List<Translation2d> path = astar.findPath(START, GOAL, BUDGET_MICROS);
+
+      assertFalse(path.isEmpty());
+      assertEquals(1, astar.getBound(), 0);
+      for (Translation2d point : path) {
+        assertFalse(field.isBlocked(field.coordsToCell(point)));
+      }
+      if (step > 0) {
+        // Starting over would take as long as a planner which has never searched.
+        AnytimeAstar fresh = new AnytimeAstar(field);
+        fresh.findPath(START, GOAL, BUDGET_MICROS);
+        assertTrue(
+            astar.getExpansions() < fresh.getExpansions(),
+            astar.getExpansions()
+                + " expansions to repair, "
+                + fresh.getExpansions()
+                + " to start over");
+      }
+    }
+  }
+}
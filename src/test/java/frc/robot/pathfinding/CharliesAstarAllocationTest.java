@@ -0,0 +1,50 @@
+package frc.robot.pathfinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Makes sure planning with CharliesAstar allocates nothing once its buffers exist, so it puts no
+ * pressure on the garbage collector of the roboRIO.
+ */
+class CharliesAstarAllocationTest {
+  // Fetched once, as getting the bean allocates.
+  private static final java.lang.management.ThreadMXBean THREADS =
+      ManagementFactory.getThreadMXBean();
+
+  @ParameterizedTest
+  @EnumSource(CharliesAstar.Mode.class)
+  void planningAllocatesNothing(CharliesAstar.Mode mode) {
+    assumeTrue(
+        THREADS instanceof com.sun.management.ThreadMXBean threads
+            && threads.isThreadAllocatedMemorySupported()
+            && threads.isThreadAllocatedMemoryEnabled(),
+        "The JVM can not count allocated bytes");
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+
+    GriddedField field = new GriddedField();
+    CharliesAstar astar = new CharliesAstar(field, field.coordsToBox(new Translation2d(150, 150)));
+    astar.setMode(mode);
+    GridBox goal = field.coordsToBox(new Translation2d(1500, 650));
+
+    // The first plan allocates the queue and the search state, which are kept from then on.
+    plan(field, astar, goal);
+
+    long before = threads.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < 3; i++) {
+      plan(field, astar, goal);
+    }
+    assertEquals(0, threads.getCurrentThreadAllocatedBytes() - before);
+  }
+
+  // Assigns the costs the way findPath does, without making the path, which allocates its points.
+  private static void plan(GriddedField field, CharliesAstar astar, GridBox goal) {
+    field.grid().resetCosts();
+    astar.firstCostAssign(goal);
+  }
+}
@@ -0,0 +1,49 @@
+package frc.robot.pathfinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Makes sure the cost flood leads from the robot to the goal, or admits that it does not. */
+class CharliesAstarTest {
+  private static final Translation2d START = new Translation2d(150, 150);
+  private static final Translation2d GOAL = new Translation2d(1500, 650);
+
+  @Test
+  void floodWalksDownhillToTheGoal() {
+    GriddedField field = new GriddedField();
+    field.addTempObstacles(
+        List.of(Obstacle.rectangularObstacle(new Pose2d(800, 400, new Rotation2d()), 120, 300)));
+    CharliesAstar flood = new CharliesAstar(field, field.coordsToBox(START));
+    CharliesAstar astar = new CharliesAstar(field, field.coordsToBox(START));
+    astar.setMode(CharliesAstar.Mode.ASTAR);
+
+    List<Translation2d> path = flood.findPath(START, GOAL);
+
+    assertEquals(field.coordsToCell(GOAL), field.coordsToCell(path.get(path.size() - 1)));
+    for (int i = 1; i < path.size(); i++) {
+      int from = field.coordsToCell(path.get(i - 1));
+      int to = field.coordsToCell(path.get(i));
+      assertTrue(from != to, "The path stands still at point " + i);
+      assertFalse(field.isBlocked(to));
+    }
+    // One point per grid, so a path as long as the shortest one took no detours.
+    assertEquals(astar.findPath(START, GOAL).size(), path.size());
+  }
+
+  @Test
+  void floodFindsNoPathFromInsideAnObstacle() {
+    GriddedField field = new GriddedField();
+    field.addTempObstacles(
+        List.of(Obstacle.rectangularObstacle(new Pose2d(START, new Rotation2d()), 100, 100)));
+    CharliesAstar flood = new CharliesAstar(field, field.coordsToBox(START));
+
+    assertTrue(flood.findPath(START, GOAL).isEmpty());
+  }
+}
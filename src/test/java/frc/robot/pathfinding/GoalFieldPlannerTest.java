@@ -0,0 +1,52 @@
+package frc.robot.pathfinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Makes sure plans to a goal with a goal distance field follow the field. */
+class GoalFieldPlannerTest {
+  private static final Translation2d START = new Translation2d(150, 150);
+  private static final Translation2d SCORING = new Translation2d(1500, 650);
+  private static final Translation2d ELSEWHERE = new Translation2d(1500, 150);
+
+  @Test
+  void followsTheFieldAroundMovingObstacles() {
+    GriddedField field = new GriddedField();
+    List<GoalDistanceField> goalFields =
+        GoalDistanceField.loadAll(
+            null, field, Map.of("scoring", new Pose2d(SCORING, new Rotation2d())));
+    GoalFieldPlanner planner = new GoalFieldPlanner(field, goalFields, new DStarLite(field));
+    field.addTempObstacles(
+        List.of(Obstacle.rectangularObstacle(new Pose2d(800, 400, new Rotation2d()), 120, 120)));
+
+    List<Translation2d> path = planner.findPath(START, SCORING);
+
+    assertTrue(planner.usedGoalField());
+    assertEquals(field.coordsToCell(SCORING), field.coordsToCell(path.get(path.size() - 1)));
+    for (Translation2d point : path) {
+      assertFalse(field.isBlocked(field.coordsToCell(point)));
+    }
+  }
+
+  @Test
+  void plansToOtherGoalsWithTheFallback() {
+    GriddedField field = new GriddedField();
+    List<GoalDistanceField> goalFields =
+        GoalDistanceField.loadAll(
+            null, field, Map.of("scoring", new Pose2d(SCORING, new Rotation2d())));
+    GoalFieldPlanner planner = new GoalFieldPlanner(field, goalFields, new DStarLite(field));
+
+    List<Translation2d> path = planner.findPath(START, ELSEWHERE);
+
+    assertFalse(planner.usedGoalField());
+    assertEquals(field.coordsToCell(ELSEWHERE), field.coordsToCell(path.get(path.size() - 1)));
+  }
+}
@@ -0,0 +1,35 @@
+package frc.robot.pathfinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Makes sure a box only ever takes costs from the boxes next to it. */
+class GridBoxTest {
+  @Test
+  void ignoresANeighbourItHasTakenACostFrom() {
+    GriddedField field = new GriddedField();
+    GridBox box = field.box(200, 100);
+    GridBox right = field.box(201, 100);
+    GridBox above = field.box(200, 101);
+
+    box.setCost(right, 5, false);
+
+    assertEquals(5, box.getCost(), 0);
+    assertFalse(box.assignable(right));
+    assertTrue(box.assignable(above));
+  }
+
+  @Test
+  void rejectsBoxesWhichAreNotNeighbours() {
+    GriddedField field = new GriddedField();
+    GridBox box = field.box(200, 100);
+    GridBox twoRight = field.box(202, 100);
+
+    assertThrows(IllegalArgumentException.class, () -> box.setCost(twoRight, 5, false));
+    assertThrows(IllegalArgumentException.class, () -> box.assignable(twoRight));
+  }
+}
@@ -0,0 +1,63 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.GRID_SIDE_LENGTH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Makes sure points off the field never turn into cells somewhere else on it. */
+class GriddedFieldTest {
+  private static final Translation2d FREE = new Translation2d(800, 400);
+
+  @Test
+  void keepsPointsOffTheGridOnItsEdge() {
+    GriddedField field = new GriddedField();
+    FieldGrid grid = field.grid();
+    double pastRight = grid.width() * GRID_SIDE_LENGTH + 10;
+
+    int cell = field.coordsToCell(new Translation2d(pastRight, 400));
+    assertEquals(grid.width() - 1, grid.x(cell));
+    assertEquals(400 / GRID_SIDE_LENGTH, grid.y(cell));
+
+    cell = field.coordsToCell(new Translation2d(800, -10));
+    assertEquals(800 / GRID_SIDE_LENGTH, grid.x(cell));
+    assertEquals(0, grid.y(cell));
+
+    assertTrue(field.isBlocked(new Translation2d(pastRight, 400)));
+    assertTrue(field.isBlocked(new Translation2d(-1, 400)));
+    assertFalse(field.isBlocked(FREE));
+  }
+
+  @Test
+  void plannersFindNoPathOffTheGrid() {
+    GriddedField field = new GriddedField();
+    Translation2d offGrid = new Translation2d(800, -10);
+    List<PathPlanner> planners =
+        List.of(
+            new CharliesAstar(field, field.coordsToBox(FREE)),
+            new DStarLite(field),
+            new QuadtreeAstar(field),
+            new BidirectionalAstar(field),
+            new JumpPointSearch(field),
+            new ThetaStar(field),
+            new HierarchicalAstar(field),
+            new AnytimeAstar(field));
+
+    for (PathPlanner planner : planners) {
+      String name = planner.getClass().getSimpleName();
+      assertTrue(planner.findPath(FREE, offGrid).isEmpty(), name + " planned to the goal");
+      assertTrue(planner.findPath(offGrid, FREE).isEmpty(), name + " planned from the start");
+    }
+
+    GoalRanker ranker = new GoalRanker(field);
+    List<GoalRanker.RankedGoal> ranked =
+        ranker.rank(FREE, List.of(new Pose2d(offGrid, new Rotation2d())));
+    assertFalse(ranked.get(0).reachable());
+  }
+}
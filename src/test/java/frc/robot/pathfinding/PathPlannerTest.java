@@ -0,0 +1,46 @@
+package frc.robot.pathfinding;
+
+import static frc.robot.pathfinding.PathfindingConstants.CLEARANCE_RADIUS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Makes sure the robot still gets a path when an obstacle comes right up to it. */
+class PathPlannerTest {
+  private static final Translation2d START = new Translation2d(600, 400);
+  private static final Translation2d GOAL = new Translation2d(1400, 400);
+
+  @Test
+  void plansFromTheClosestFreePointWhenTheRobotIsBlocked() {
+    GriddedField field = new GriddedField();
+    // Another robot parked beside this one, well inside the clearance radius.
+    field.addTempObstacles(
+        List.of(Obstacle.rectangularObstacle(new Pose2d(600, 340, new Rotation2d()), 60, 60)));
+    PathPlanner planner = new DStarLite(field);
+    assertTrue(field.isBlocked(START));
+    assertTrue(planner.findPath(START, GOAL).isEmpty());
+
+    List<Translation2d> path = planner.findPathFromFreePoint(field, START, GOAL);
+
+    assertEquals(START, path.get(0));
+    Translation2d free = path.get(1);
+    assertFalse(field.isBlocked(free));
+    assertTrue(
+        free.getDistance(START) <= CLEARANCE_RADIUS, "Backed away " + free.getDistance(START));
+    assertEquals(field.coordsToCell(GOAL), field.coordsToCell(path.get(path.size() - 1)));
+  }
+
+  @Test
+  void plansFromTheRobotWhenItIsFree() {
+    GriddedField field = new GriddedField();
+    PathPlanner planner = new DStarLite(field);
+
+    assertEquals(planner.findPath(START, GOAL), planner.findPathFromFreePoint(field, START, GOAL));
+  }
+}
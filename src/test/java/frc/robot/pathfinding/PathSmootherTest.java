@@ -0,0 +1,46 @@
+package frc.robot.pathfinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Makes sure smoothing never turns a path around an obstacle into one through it. */
+class PathSmootherTest {
+  @Test
+  void keepsTheCornerOfABentAnyAnglePath() {
+    GriddedField field = new GriddedField();
+    field.addTempObstacles(
+        List.of(Obstacle.rectangularObstacle(new Pose2d(760, 550, new Rotation2d()), 80, 80)));
+    PathSmoother smoother = new PathSmoother(field);
+    LineOfSight lineOfSight = new LineOfSight(field);
+
+    // Both steps go up and to the right, but the corner is what keeps the path off the obstacle.
+    Translation2d start = new Translation2d(600, 400);
+    Translation2d corner = new Translation2d(900, 420);
+    Translation2d goal = new Translation2d(920, 700);
+    List<Translation2d> smoothed = smoother.smooth(List.of(start, corner, goal));
+
+    assertEquals(List.of(start, corner, goal), smoothed);
+    for (int i = 1; i < smoothed.size(); i++) {
+      assertTrue(lineOfSight.visible(smoothed.get(i - 1), smoothed.get(i)));
+    }
+  }
+
+  @Test
+  void collapsesPointsOnALine() {
+    PathSmoother smoother = new PathSmoother(new GriddedField());
+    List<Translation2d> path =
+        List.of(
+            new Translation2d(100, 100),
+            new Translation2d(110, 101),
+            new Translation2d(120, 102),
+            new Translation2d(130, 110));
+
+    assertEquals(List.of(path.get(0), path.get(2), path.get(3)), smoother.collapse(path));
+  }
+}